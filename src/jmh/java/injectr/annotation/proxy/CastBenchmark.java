@@ -0,0 +1,78 @@
+package injectr.annotation.proxy;
+
+import injectr.annotation.Aspect;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Casting annotations to their meta-annotations and reading attributes from the casts, with a fresh resolver (cold) and
+ * with cached cast plans (warm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class CastBenchmark {
+
+    @Param({"PROXY", "GENERATED", "MATERIALIZED"})
+    public CastMode castMode;
+
+    private AnnotationInheritanceResolver resolver;
+    private Derived annotation;
+    private Base cast;
+
+    @Setup
+    public void setup() {
+        resolver = new AnnotationInheritanceResolver(castMode);
+        annotation = Annotated.class.getAnnotation(Derived.class);
+        cast = resolver.cast(annotation, Base.class);
+    }
+
+    @Benchmark
+    public Base coldCast() {
+        return new AnnotationInheritanceResolver(castMode).cast(annotation, Base.class);
+    }
+
+    @Benchmark
+    public Base warmCast() {
+        return resolver.cast(annotation, Base.class);
+    }
+
+    @Benchmark
+    public String ownAttributeRead() {
+        return cast.value(); //Overridden by the cast annotation
+    }
+
+    @Benchmark
+    public int inheritedAttributeRead() {
+        return cast.priority(); //Supplied by the meta-annotation
+    }
+
+    @Benchmark
+    public int castHashCode() {
+        return cast.hashCode();
+    }
+
+    @Aspect
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Base {
+        String value();
+        int priority();
+    }
+
+    @Base(value = "base", priority = 1)
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Derived {
+        String value();
+    }
+
+    @Derived("derived")
+    static class Annotated {
+
+    }
+}
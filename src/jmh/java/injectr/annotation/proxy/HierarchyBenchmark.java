@@ -0,0 +1,74 @@
+package injectr.annotation.proxy;
+
+import injectr.annotation.Aspect;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.annotation.Annotation;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries against resolved hierarchies and resolution of large synthetic hierarchies. A width of 1 is a deep chain,
+ * wider layers are fully connected so the number of paths grows exponentially with the depth.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class HierarchyBenchmark {
+
+    @Param({"32"})
+    public int depth;
+
+    @Param({"1", "4"})
+    public int width;
+
+    private Class<? extends Annotation> leaf, root;
+    private AnnotationInheritanceResolver resolver;
+
+    @Setup
+    public void setup() {
+        SyntheticHierarchy hierarchy = new SyntheticHierarchy(depth, width);
+        leaf = hierarchy.leaf();
+        root = hierarchy.root();
+        resolver = new AnnotationInheritanceResolver();
+        resolver.resolveDependencies(leaf);
+    }
+
+    @Benchmark
+    public boolean isInstanceOf() {
+        return resolver.isInstanceOf(leaf, root);
+    }
+
+    @Benchmark
+    public boolean isNotInstanceOf() {
+        return resolver.isInstanceOf(root, leaf);
+    }
+
+    @Benchmark
+    public Set<Class<? extends Annotation>> flattenDependencies() {
+        return resolver.flattenDependencies(leaf);
+    }
+
+    @Benchmark
+    public Object prioritizeDependencies() {
+        return resolver.prioritizeDependencies(leaf);
+    }
+
+    @Benchmark
+    public Object coldResolveDependencies() {
+        return new AnnotationInheritanceResolver().resolveDependencies(leaf);
+    }
+
+    @Benchmark
+    public Object warmResolveDependencies() {
+        return resolver.resolveDependencies(leaf);
+    }
+
+    @Benchmark
+    public boolean coldIsAspect() {
+        return new AnnotationInheritanceResolver().isInstanceOf(leaf, Aspect.class);
+    }
+}
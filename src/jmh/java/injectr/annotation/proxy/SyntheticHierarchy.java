@@ -0,0 +1,85 @@
+package injectr.annotation.proxy;
+
+import injectr.annotation.Aspect;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Type;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Generates layered annotation hierarchies for benchmarking. Layer 0 is annotated with {@link Aspect} and every type of
+ * a layer is annotated with every type of the previous layer, so wide layers produce many diamonds.
+ */
+final class SyntheticHierarchy extends ClassLoader {
+
+    private static final String PACKAGE = "injectr/annotation/proxy/synthetic/";
+
+    private final Map<String, byte[]> classes = new HashMap<>();
+    private final int depth, width;
+
+    SyntheticHierarchy(int depth, int width) {
+        super(SyntheticHierarchy.class.getClassLoader());
+        this.depth = depth;
+        this.width = width;
+        for (int layer = 0; layer <= depth; layer++) {
+            for (int i = 0; i < (layer == depth ? 1 : width); i++)
+                classes.put(name(layer, i).replace('/', '.'), generate(layer, i));
+        }
+    }
+
+    /**
+     * @return The single most derived type, annotated with every type of the last layer.
+     */
+    Class<? extends Annotation> leaf() {
+        return load(depth, 0);
+    }
+
+    Class<? extends Annotation> root() {
+        return load(0, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Class<? extends Annotation> load(int layer, int index) {
+        try {
+            return (Class<? extends Annotation>) loadClass(name(layer, index).replace('/', '.'));
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String name(int layer, int index) {
+        return PACKAGE + "Layer" + layer + "$" + index;
+    }
+
+    private byte[] generate(int layer, int index) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_INTERFACE | ACC_ABSTRACT | ACC_ANNOTATION, name(layer, index), null,
+                "java/lang/Object", new String[]{Type.getInternalName(Annotation.class)});
+        AnnotationVisitor retention = writer.visitAnnotation(Type.getDescriptor(Retention.class), true);
+        retention.visitEnum("value", Type.getDescriptor(RetentionPolicy.class), RetentionPolicy.RUNTIME.name());
+        retention.visitEnd();
+        if (layer == 0) {
+            writer.visitAnnotation(Type.getDescriptor(Aspect.class), true).visitEnd();
+        } else {
+            for (int parent = 0; parent < width; parent++)
+                writer.visitAnnotation("L" + name(layer - 1, parent) + ";", true).visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytecode = classes.get(name);
+        if (bytecode == null)
+            throw new ClassNotFoundException(name);
+        return defineClass(name, bytecode, 0, bytecode.length);
+    }
+}
@@ -0,0 +1,78 @@
+package injectr.util.logic;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Evaluation of logical observer chains of increasing length, as composed, compiled, adaptive and batched observers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ObserverBenchmark {
+
+    @Param({"2", "16", "128", "1024"})
+    public int length;
+
+    private LogicalObserver<Integer> composed, compiled, adaptive;
+    private IntLogicalObserver primitive;
+    private List<Integer> batch;
+    private int value;
+
+    @Setup
+    public void setup() {
+        //Every term passes except the last, so AND chains evaluate every term
+        LogicalObserver<Integer> observer = in -> in >= 0;
+        IntLogicalObserver intObserver = in -> in >= 0;
+        for (int i = 1; i < length; i++) {
+            int bound = i == length - 1 ? Integer.MAX_VALUE : -i;
+            observer = observer.and(in -> in > bound);
+            intObserver = intObserver.and(in -> in > bound);
+        }
+        composed = observer;
+        compiled = observer.compile();
+        adaptive = observer.adaptive();
+        primitive = intObserver;
+        batch = IntStream.range(0, 1 << 16).boxed().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public boolean composed() {
+        return composed.observe(value++);
+    }
+
+    @Benchmark
+    public boolean compiled() {
+        return compiled.observe(value++);
+    }
+
+    @Benchmark
+    public boolean adaptive() {
+        return adaptive.observe(value++);
+    }
+
+    @Benchmark
+    public boolean primitive() {
+        return primitive.observe(value++);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1 << 16)
+    public BitSet batch() {
+        return composed.observeAll(batch);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1 << 16)
+    public BitSet parallelBatch() {
+        return composed.observeAllParallel(batch);
+    }
+}
@@ -0,0 +1,259 @@
+package injectr.annotation.index;
+
+import injectr.util.PackageFilter;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A precomputed, name based description of part of the {@link injectr.annotation.Aspect} hierarchy. Indexes are
+ * written at compile time by the {@link AspectIndexProcessor} to {@link #RESOURCE} and allow the hierarchy to be
+ * resolved without reflectively scanning annotations.
+ *
+ * For every indexed annotation type the index stores its meta-annotations which are rooted at
+ * {@link injectr.annotation.Aspect}, its priority layers (types grouped by their distance from
+ * {@link injectr.annotation.Aspect}) and, for every attribute of its flattened types, the type which supplies the
+ * attribute's value. All type names are binary names.
+ */
+public final class AspectIndex {
+
+    /**
+     * The location of index resources.
+     */
+    public static final String RESOURCE = "META-INF/injectr/aspects.idx";
+
+    /**
+     * An index which contains nothing.
+     */
+    public static final AspectIndex EMPTY = new Builder().build();
+
+    private static final String HEADER = "#injectr-aspect-index 1";
+
+    private final Map<String, Set<String>> parents;
+    private final Map<String, List<List<String>>> layers;
+    private final Map<String, Map<String, String>> attributes;
+
+    private AspectIndex(Map<String, Set<String>> parents, Map<String, List<List<String>>> layers,
+                        Map<String, Map<String, String>> attributes) {
+        this.parents = parents;
+        this.layers = layers;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Reads and merges every index resource visible to the provided class loader.
+     *
+     * @param loader The class loader to search.
+     * @return The merged index.
+     * @throws UncheckedIOException If an index could not be read.
+     */
+    public static AspectIndex load(ClassLoader loader) {
+        Builder builder = new Builder();
+        try {
+            Enumeration<URL> resources = loader.getResources(RESOURCE);
+            while (resources.hasMoreElements()) {
+                try (InputStream in = resources.nextElement().openStream()) {
+                    builder.merge(read(in));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads a single index.
+     *
+     * @param in The stream to read, it is not closed.
+     * @return The index.
+     * @throws IOException If the stream is not a valid index.
+     */
+    public static AspectIndex read(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        if (!HEADER.equals(reader.readLine()))
+            throw new IOException("Unsupported aspect index!");
+
+        Builder builder = new Builder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty())
+                continue;
+            String[] parts = line.split(" ");
+            switch (parts[0]) {
+                case "parents":
+                    builder.parents(parts[1], Arrays.asList(parts).subList(2, parts.length));
+                    break;
+                case "layers":
+                    List<List<String>> typeLayers = new ArrayList<>();
+                    for (String layer : parts[2].split(";"))
+                        typeLayers.add(Arrays.asList(layer.split(",")));
+                    builder.layers(parts[1], typeLayers);
+                    break;
+                case "attribute":
+                    builder.attribute(parts[1], parts[2], parts[3]);
+                    break;
+                default:
+                    throw new IOException("Unknown aspect index entry: " + line);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Writes this index.
+     *
+     * @param out The stream to write to, it is not closed.
+     * @throws IOException If the index could not be written.
+     */
+    public void write(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(HEADER + "\n");
+        for (Map.Entry<String, Set<String>> entry : parents.entrySet())
+            writer.write("parents " + entry.getKey() + (entry.getValue().isEmpty() ? "" : " " + String.join(" ", entry.getValue())) + "\n");
+        for (Map.Entry<String, List<List<String>>> entry : layers.entrySet()) {
+            StringJoiner joiner = new StringJoiner(";");
+            entry.getValue().forEach(layer -> joiner.add(String.join(",", layer)));
+            writer.write("layers " + entry.getKey() + " " + joiner + "\n");
+        }
+        for (Map.Entry<String, Map<String, String>> entry : attributes.entrySet()) {
+            for (Map.Entry<String, String> attribute : entry.getValue().entrySet())
+                writer.write("attribute " + entry.getKey() + " " + attribute.getKey() + " " + attribute.getValue() + "\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * Removes the types which are declared in an ignored package or which have an ignored ancestor, so the index only
+     * describes types whose hierarchy a resolver ignoring these packages resolves identically. Removed types are left
+     * to be resolved reflectively.
+     *
+     * @param ignored The ignored packages.
+     * @return The filtered index, or this index if nothing was removed.
+     */
+    public AspectIndex without(PackageFilter ignored) {
+        Map<String, Boolean> kept = new HashMap<>();
+        Builder builder = new Builder();
+        boolean removed = false;
+        for (String type : parents.keySet()) {
+            if (!isKept(type, ignored, kept, new HashSet<>())) {
+                removed = true;
+                continue;
+            }
+            builder.parents(type, parents.get(type));
+            if (layers.containsKey(type))
+                builder.layers(type, layers.get(type));
+            attributes.getOrDefault(type, Collections.emptyMap()).forEach((key, owner) -> builder.attribute(type, key, owner));
+        }
+        return removed ? builder.build() : this;
+    }
+
+    private boolean isKept(String type, PackageFilter ignored, Map<String, Boolean> kept, Set<String> visiting) {
+        Boolean known = kept.get(type);
+        if (known != null)
+            return known;
+        if (!visiting.add(type)) //Cyclic, the other members of the cycle decide
+            return true;
+        boolean keep = !ignored.matches(packageOf(type));
+        for (String parent : parents.getOrDefault(type, Collections.emptySet())) {
+            if (!keep)
+                break;
+            keep = isKept(parent, ignored, kept, visiting);
+        }
+        visiting.remove(type);
+        kept.put(type, keep);
+        return keep;
+    }
+
+    static String packageOf(String name) {
+        int index = name.lastIndexOf('.');
+        return index < 0 ? "" : name.substring(0, index);
+    }
+
+    public boolean isEmpty() {
+        return parents.isEmpty();
+    }
+
+    /**
+     * @return The names of every indexed type.
+     */
+    public Set<String> types() {
+        return parents.keySet();
+    }
+
+    /**
+     * @param type The binary name of the type.
+     * @return Whether the type is known to be rooted at {@link injectr.annotation.Aspect}.
+     */
+    public boolean contains(String type) {
+        return parents.containsKey(type);
+    }
+
+    /**
+     * @param type The binary name of the type.
+     * @return The binary names of the type's rooted meta-annotations, or null if the type is not indexed.
+     */
+    public Set<String> parentsOf(String type) {
+        return parents.get(type);
+    }
+
+    /**
+     * @param type The binary name of the type.
+     * @return The type's priority layers, or null if they were not indexed.
+     */
+    public List<List<String>> layersOf(String type) {
+        return layers.get(type);
+    }
+
+    /**
+     * @param type The binary name of the type.
+     * @return A map from attribute keys (name followed by method descriptor, e.g. {@code value()Ljava/lang/String;})
+     * to the binary name of the type supplying the value, or null if they were not indexed.
+     */
+    public Map<String, String> attributesOf(String type) {
+        return attributes.get(type);
+    }
+
+    /**
+     * Builder for {@link AspectIndex} instances, later entries for the same type replace earlier ones.
+     */
+    public static final class Builder {
+
+        private final Map<String, Set<String>> parents = new LinkedHashMap<>();
+        private final Map<String, List<List<String>>> layers = new LinkedHashMap<>();
+        private final Map<String, Map<String, String>> attributes = new LinkedHashMap<>();
+
+        public Builder parents(String type, Collection<String> typeParents) {
+            parents.put(type, Collections.unmodifiableSet(new LinkedHashSet<>(typeParents)));
+            return this;
+        }
+
+        public Builder layers(String type, List<List<String>> typeLayers) {
+            List<List<String>> copy = new ArrayList<>();
+            typeLayers.forEach(layer -> copy.add(Collections.unmodifiableList(new ArrayList<>(layer))));
+            layers.put(type, Collections.unmodifiableList(copy));
+            return this;
+        }
+
+        public Builder attribute(String type, String key, String declaringType) {
+            attributes.computeIfAbsent(type, t -> new LinkedHashMap<>()).put(key, declaringType);
+            return this;
+        }
+
+        public Builder merge(AspectIndex index) {
+            index.parents.forEach(this::parents);
+            index.layers.forEach(this::layers);
+            index.attributes.forEach((type, typeAttributes) -> typeAttributes.forEach((key, declaringType) -> attribute(type, key, declaringType)));
+            return this;
+        }
+
+        public AspectIndex build() {
+            Map<String, Map<String, String>> attributesCopy = new LinkedHashMap<>();
+            attributes.forEach((type, typeAttributes) -> attributesCopy.put(type, Collections.unmodifiableMap(new LinkedHashMap<>(typeAttributes))));
+            return new AspectIndex(Collections.unmodifiableMap(new LinkedHashMap<>(parents)),
+                    Collections.unmodifiableMap(new LinkedHashMap<>(layers)), Collections.unmodifiableMap(attributesCopy));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package injectr.annotation.index;
+
+import injectr.util.PackageFilter;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.*;
+
+/**
+ * Annotation processor which writes an {@link AspectIndex} for every annotation type rooted at
+ * {@link injectr.annotation.Aspect} which is declared in the compiled sources, so the hierarchy can be bootstrapped at
+ * runtime through {@link injectr.annotation.proxy.AnnotationInheritanceResolver#bootstrap(ClassLoader)} without any
+ * reflective scanning.
+ *
+ * Meta-annotations of {@link PackageFilter#JAVA} are ignored. Resolvers ignoring further packages should pass them,
+ * comma separated, through the {@value #IGNORED_PACKAGES} option (e.g. {@code -Ainjectr.ignoredPackages=org.hibernate})
+ * so the index matches what they resolve.
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions(AspectIndexProcessor.IGNORED_PACKAGES)
+public class AspectIndexProcessor extends AbstractProcessor {
+
+    public static final String IGNORED_PACKAGES = "injectr.ignoredPackages";
+
+    private final MetaAnnotationGraph graph = new MetaAnnotationGraph();
+    private final Set<String> types = new LinkedHashSet<>();
+    private PackageFilter ignoredPackages = PackageFilter.JAVA;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        String option = processingEnv.getOptions().get(IGNORED_PACKAGES);
+        if (option != null)
+            ignoredPackages = PackageFilter.JAVA.with(Arrays.stream(option.split(","))
+                    .map(String::trim)
+                    .filter(prefix -> !prefix.isEmpty())
+                    .toArray(String[]::new));
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements()))
+            collectAnnotationTypes(type);
+
+        if (roundEnv.processingOver()) {
+            AspectIndex index = graph.toIndex(types);
+            if (index.isEmpty())
+                return false;
+            try {
+                FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", AspectIndex.RESOURCE);
+                try (OutputStream out = resource.openOutputStream()) {
+                    index.write(out);
+                }
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write the aspect index: " + e);
+            }
+        }
+        return false;
+    }
+
+    private void collectAnnotationTypes(TypeElement type) {
+        if (type.getKind() == ElementKind.ANNOTATION_TYPE && !ignoredPackages.matches(packageOf(type))) {
+            types.add(binaryName(type));
+            collect(type);
+        }
+        for (TypeElement member : ElementFilter.typesIn(type.getEnclosedElements()))
+            collectAnnotationTypes(member);
+    }
+
+    private void collect(TypeElement type) {
+        //Collect the runtime visible meta-annotation graph, like AnnotationInheritanceResolver does reflectively
+        Deque<TypeElement> queue = new ArrayDeque<>();
+        queue.add(type);
+        while (!queue.isEmpty()) {
+            TypeElement current = queue.poll();
+            if (graph.contains(binaryName(current)))
+                continue;
+            List<String> metaAnnotations = new ArrayList<>();
+            for (AnnotationMirror mirror : current.getAnnotationMirrors()) {
+                TypeElement metaAnnotation = (TypeElement) mirror.getAnnotationType().asElement();
+                if (isVisibleMetaAnnotation(metaAnnotation)) {
+                    metaAnnotations.add(binaryName(metaAnnotation));
+                    queue.add(metaAnnotation);
+                }
+            }
+            List<String> attributes = new ArrayList<>();
+            for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements()))
+                attributes.add(method.getSimpleName() + "()" + descriptor(method.getReturnType()));
+            graph.add(binaryName(current), metaAnnotations, attributes);
+        }
+    }
+
+    private boolean isVisibleMetaAnnotation(TypeElement annotationType) {
+        Retention retention = annotationType.getAnnotation(Retention.class);
+        if (retention == null || retention.value() != RetentionPolicy.RUNTIME)
+            return false;
+        return !ignoredPackages.matches(packageOf(annotationType));
+    }
+
+    private String packageOf(TypeElement type) {
+        return processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private String descriptor(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN: return "Z";
+            case BYTE: return "B";
+            case SHORT: return "S";
+            case CHAR: return "C";
+            case INT: return "I";
+            case LONG: return "J";
+            case FLOAT: return "F";
+            case DOUBLE: return "D";
+            case VOID: return "V";
+            case ARRAY: return "[" + descriptor(((ArrayType) type).getComponentType());
+            case DECLARED: return "L" + binaryName((TypeElement) ((DeclaredType) type).asElement()).replace('.', '/') + ";";
+            default: return "L" + processingEnv.getTypeUtils().erasure(type).toString().replace('.', '/') + ";";
+        }
+    }
+}
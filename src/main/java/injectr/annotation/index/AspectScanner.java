@@ -0,0 +1,165 @@
+package injectr.annotation.index;
+
+import injectr.util.PackageFilter;
+import org.objectweb.asm.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Builds an {@link AspectIndex} by reading annotation type class files directly from jars and directories with ASM.
+ * No class is loaded (and so no static initializer is run) while scanning, the resulting index can be passed to
+ * {@link injectr.annotation.proxy.AnnotationInheritanceResolver#bootstrap(AspectIndex)} which only loads the indexed
+ * classes once they are actually queried.
+ *
+ * Class files are read in parallel.
+ */
+public final class AspectScanner {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private AspectScanner() {}
+
+    /**
+     * Scans every jar and directory of the {@code java.class.path}, ignoring the annotations of
+     * {@link PackageFilter#JAVA}.
+     *
+     * @return The index of every scanned annotation type rooted at {@link injectr.annotation.Aspect}.
+     * @throws UncheckedIOException If a class path entry could not be read.
+     */
+    public static AspectIndex scanClassPath() {
+        return scanClassPath(PackageFilter.JAVA);
+    }
+
+    /**
+     * Scans every jar and directory of the {@code java.class.path}.
+     *
+     * @param ignoredPackages The packages whose annotations are skipped, this should be the filter of the resolver the
+     *                        index is for.
+     * @return The index of every scanned annotation type rooted at {@link injectr.annotation.Aspect}.
+     * @throws UncheckedIOException If a class path entry could not be read.
+     */
+    public static AspectIndex scanClassPath(PackageFilter ignoredPackages) {
+        return scan(Stream.of(System.getProperty("java.class.path").split(File.pathSeparator))
+                .filter(entry -> !entry.isEmpty())
+                .map(Paths::get)
+                .collect(Collectors.toList()), ignoredPackages);
+    }
+
+    /**
+     * Scans the provided jars and directories, missing roots are ignored. The annotations of {@link PackageFilter#JAVA}
+     * are ignored.
+     *
+     * @param roots The jars and class directories to scan.
+     * @return The index of every scanned annotation type rooted at {@link injectr.annotation.Aspect}.
+     * @throws UncheckedIOException If a root could not be read.
+     */
+    public static AspectIndex scan(Collection<Path> roots) {
+        return scan(roots, PackageFilter.JAVA);
+    }
+
+    /**
+     * Scans the provided jars and directories, missing roots are ignored.
+     *
+     * @param roots The jars and class directories to scan.
+     * @param ignoredPackages The packages whose annotations are skipped, this should be the filter of the resolver the
+     *                        index is for.
+     * @return The index of every scanned annotation type rooted at {@link injectr.annotation.Aspect}.
+     * @throws UncheckedIOException If a root could not be read.
+     */
+    public static AspectIndex scan(Collection<Path> roots, PackageFilter ignoredPackages) {
+        Map<String, ScannedType> scanned = new ConcurrentHashMap<>();
+        try {
+            for (Path root : roots) {
+                if (Files.isDirectory(root))
+                    scanDirectory(root, ignoredPackages, scanned);
+                else if (Files.isRegularFile(root))
+                    scanJar(root, ignoredPackages, scanned);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        MetaAnnotationGraph graph = new MetaAnnotationGraph();
+        scanned.forEach((name, type) -> graph.add(name, type.metaAnnotations, type.attributes));
+        return graph.toIndex(scanned.keySet());
+    }
+
+    private static void scanDirectory(Path root, PackageFilter ignoredPackages, Map<String, ScannedType> scanned) throws IOException {
+        List<Path> classFiles;
+        try (Stream<Path> files = Files.walk(root)) {
+            classFiles = files.filter(file -> file.toString().endsWith(CLASS_SUFFIX)).collect(Collectors.toList());
+        }
+        classFiles.parallelStream().forEach(file -> {
+            try (InputStream in = Files.newInputStream(file)) {
+                read(in, ignoredPackages, scanned);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static void scanJar(Path jar, PackageFilter ignoredPackages, Map<String, ScannedType> scanned) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            List<? extends ZipEntry> entries = zip.stream()
+                    .filter(entry -> entry.getName().endsWith(CLASS_SUFFIX))
+                    .collect(Collectors.toList());
+            entries.parallelStream().forEach(entry -> {
+                try (InputStream in = zip.getInputStream(entry)) {
+                    read(in, ignoredPackages, scanned);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (java.util.zip.ZipException e) {
+            //Not a jar
+        }
+    }
+
+    private static void read(InputStream in, PackageFilter ignoredPackages, Map<String, ScannedType> scanned) throws IOException {
+        ClassReader reader;
+        try {
+            reader = new ClassReader(in);
+        } catch (IllegalArgumentException e) { //Unsupported class file version
+            return;
+        }
+        if ((reader.getAccess() & Opcodes.ACC_ANNOTATION) == 0)
+            return;
+        String name = reader.getClassName().replace('/', '.');
+        if (ignoredPackages.matches(AspectIndex.packageOf(name)))
+            return;
+
+        ScannedType type = new ScannedType();
+        reader.accept(new ClassVisitor(Opcodes.ASM6) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                String metaAnnotation = Type.getType(descriptor).getClassName();
+                if (visible && !ignoredPackages.matches(AspectIndex.packageOf(metaAnnotation)))
+                    type.metaAnnotations.add(metaAnnotation);
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String methodName, String descriptor, String signature, String[] exceptions) {
+                if ((access & Opcodes.ACC_ABSTRACT) != 0)
+                    type.attributes.add(methodName + descriptor);
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        scanned.putIfAbsent(name, type); //The first class path entry wins, like a class loader
+    }
+
+    private static final class ScannedType {
+
+        final List<String> metaAnnotations = new ArrayList<>();
+        final List<String> attributes = new ArrayList<>();
+    }
+}
@@ -0,0 +1,236 @@
+package injectr.annotation.index;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Compact binary form of an {@link AspectIndex} which is persisted between runs, so a short lived JVM can start from
+ * the hierarchy resolved by a previous run instead of rediscovering it. Snapshots are keyed by a fingerprint of the
+ * class path they were written for.
+ *
+ * The format is a header (magic, version and fingerprint) followed by a table of every distinct string and then the
+ * entries of every type, all referencing strings by their position in the table. Snapshots are decoded eagerly: they
+ * only hold a few names per annotation type, and bootstrapping merges them into the resolver's index anyway.
+ */
+public final class AspectSnapshot {
+
+    private static final int MAGIC = 0x494E4A53; //INJS
+    private static final int VERSION = 1;
+
+    private AspectSnapshot() {}
+
+    /**
+     * Writes a snapshot, replacing the file atomically where supported so concurrent readers never see a partial one.
+     *
+     * @param file The file to write.
+     * @param index The index to persist.
+     * @param fingerprint The fingerprint of the class path the index was resolved from.
+     * @throws IOException If the snapshot could not be written.
+     */
+    public static void write(Path file, AspectIndex index, String fingerprint) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (String type : index.types()) {
+            intern(strings, type);
+            index.parentsOf(type).forEach(parent -> intern(strings, parent));
+            List<List<String>> layers = index.layersOf(type);
+            if (layers != null)
+                layers.forEach(layer -> layer.forEach(member -> intern(strings, member)));
+            Map<String, String> attributes = index.attributesOf(type);
+            if (attributes != null)
+                attributes.forEach((key, owner) -> {
+                    intern(strings, key);
+                    intern(strings, owner);
+                });
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, fingerprint);
+        out.writeInt(strings.size());
+        for (String string : strings.keySet())
+            writeString(out, string);
+
+        out.writeInt(index.types().size());
+        for (String type : index.types()) {
+            out.writeInt(strings.get(type));
+            writeIds(out, strings, index.parentsOf(type));
+            List<List<String>> layers = index.layersOf(type);
+            out.writeInt(layers == null ? -1 : layers.size());
+            if (layers != null) {
+                for (List<String> layer : layers)
+                    writeIds(out, strings, layer);
+            }
+            Map<String, String> attributes = index.attributesOf(type);
+            out.writeInt(attributes == null ? 0 : attributes.size());
+            if (attributes != null) {
+                for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                    out.writeInt(strings.get(attribute.getKey()));
+                    out.writeInt(strings.get(attribute.getValue()));
+                }
+            }
+        }
+        out.flush();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, bytes.toByteArray());
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads a snapshot if it was written for the provided fingerprint.
+     *
+     * @param file The file to read.
+     * @param fingerprint The fingerprint of the current class path.
+     * @return The persisted index, or null if the file does not exist or was written for a different fingerprint.
+     * @throws IOException If the file is not a valid snapshot.
+     */
+    public static AspectIndex read(Path file, String fingerprint) throws IOException {
+        if (!Files.isRegularFile(file))
+            return null;
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                throw new IOException("Unsupported aspect snapshot: " + file);
+            if (!fingerprint.equals(readString(buffer)))
+                return null;
+
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++)
+                strings[i] = readString(buffer);
+
+            AspectIndex.Builder builder = new AspectIndex.Builder();
+            int types = buffer.getInt();
+            for (int i = 0; i < types; i++) {
+                String type = strings[buffer.getInt()];
+                builder.parents(type, readNames(buffer, strings));
+                int layerCount = buffer.getInt();
+                if (layerCount >= 0) {
+                    List<List<String>> layers = new ArrayList<>(layerCount);
+                    for (int layer = 0; layer < layerCount; layer++)
+                        layers.add(readNames(buffer, strings));
+                    builder.layers(type, layers);
+                }
+                int attributes = buffer.getInt();
+                for (int attribute = 0; attribute < attributes; attribute++)
+                    builder.attribute(type, strings[buffer.getInt()], strings[buffer.getInt()]);
+            }
+            return builder.build();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Truncated aspect snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Fingerprints the class path of the running JVM (the {@code java.class.path} system property).
+     *
+     * @see #fingerprint(String)
+     */
+    public static String classPathFingerprint() throws IOException {
+        return fingerprint(System.getProperty("java.class.path", ""));
+    }
+
+    /**
+     * Fingerprints a class path from the paths, sizes and modification times of its entries (and of every file within
+     * directory entries), so any change to the classes which could be visible to the resolver changes the fingerprint.
+     * Directories are walked once, reading the attributes of their files from the walk itself.
+     *
+     * @param classPath The class path, separated by {@link File#pathSeparator}.
+     * @return The fingerprint.
+     * @throws IOException If a directory entry could not be walked.
+     */
+    public static String fingerprint(String classPath) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (String entry : classPath.split(File.pathSeparator)) {
+            if (entry.isEmpty())
+                continue;
+            Path path = Paths.get(entry).toAbsolutePath().normalize();
+            update(digest, path.toString());
+            if (Files.isDirectory(path)) {
+                SortedMap<String, String> files = new TreeMap<>();
+                Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                        if (attributes.isRegularFile())
+                            files.put(path.relativize(file).toString(), describe(attributes));
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+                files.forEach((file, description) -> update(digest, file + ":" + description));
+            } else if (Files.exists(path)) {
+                update(digest, describe(path));
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest())
+            hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
+    private static String describe(Path file) throws IOException {
+        return describe(Files.readAttributes(file, BasicFileAttributes.class));
+    }
+
+    private static String describe(BasicFileAttributes attributes) {
+        return attributes.size() + ":" + attributes.lastModifiedTime();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static void intern(Map<String, Integer> strings, String string) {
+        strings.putIfAbsent(string, strings.size());
+    }
+
+    private static void writeIds(DataOutputStream out, Map<String, Integer> strings, Collection<String> names) throws IOException {
+        out.writeInt(names.size());
+        for (String name : names)
+            out.writeInt(strings.get(name));
+    }
+
+    private static List<String> readNames(ByteBuffer buffer, String[] strings) {
+        String[] names = new String[buffer.getInt()];
+        for (int i = 0; i < names.length; i++)
+            names[i] = strings[buffer.getInt()];
+        return Arrays.asList(names);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] encoded = new byte[buffer.getInt()];
+        buffer.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,139 @@
+package injectr.annotation.index;
+
+import injectr.annotation.Aspect;
+
+import java.util.*;
+
+/**
+ * Name based meta-annotation graph which is collected by the index producers (the {@link AspectIndexProcessor} and the
+ * {@link AspectScanner}) and turned into an {@link AspectIndex}. Only runtime visible meta-annotations outside of the
+ * ignored packages should be added, mirroring what {@link injectr.annotation.proxy.AnnotationInheritanceResolver}
+ * resolves reflectively.
+ */
+final class MetaAnnotationGraph {
+
+    private static final String ASPECT = Aspect.class.getName();
+
+    private final Map<String, List<String>> metaAnnotations = new HashMap<>();
+    private final Map<String, List<String>> attributes = new HashMap<>();
+
+    /**
+     * @param type The binary name of the annotation type.
+     * @param typeMetaAnnotations The binary names of its meta-annotations.
+     * @param declaredAttributes The keys of its declared attributes (name followed by method descriptor).
+     */
+    void add(String type, Collection<String> typeMetaAnnotations, Collection<String> declaredAttributes) {
+        metaAnnotations.put(type, new ArrayList<>(typeMetaAnnotations));
+        attributes.put(type, new ArrayList<>(declaredAttributes));
+    }
+
+    boolean contains(String type) {
+        return metaAnnotations.containsKey(type);
+    }
+
+    /**
+     * Builds the index of the provided types, including the parents of all of their rooted ancestors.
+     *
+     * @param types The types to index, types which are not rooted at {@link Aspect} are skipped.
+     * @return The index.
+     */
+    AspectIndex toIndex(Collection<String> types) {
+        Set<String> rooted = findRooted();
+        AspectIndex.Builder builder = new AspectIndex.Builder();
+        Map<String, BitSet> depths = new HashMap<>();
+        for (String type : types) {
+            if (!rooted.contains(type) || ASPECT.equals(type))
+                continue;
+
+            Deque<String> queue = new ArrayDeque<>();
+            Set<String> visited = new HashSet<>();
+            queue.add(type);
+            while (!queue.isEmpty()) {
+                String current = queue.poll();
+                if (ASPECT.equals(current) || !visited.add(current))
+                    continue;
+                List<String> rootedParents = new ArrayList<>();
+                for (String parent : metaAnnotations.getOrDefault(current, Collections.emptyList())) {
+                    if (rooted.contains(parent)) {
+                        rootedParents.add(parent);
+                        queue.add(parent);
+                    }
+                }
+                builder.parents(current, rootedParents);
+            }
+
+            if (!computeDepths(type, rooted, depths, new HashSet<>()))
+                continue; //Cyclic hierarchies are left for the resolver to prioritize
+
+            List<List<String>> layers = new ArrayList<>();
+            collectLayers(type, rooted, depths, layers, new HashSet<>());
+            layers.forEach(Collections::sort);
+            builder.layers(type, layers);
+
+            //The original type supplies its own attributes first, then the layers in breadth first order
+            Map<String, String> owners = new LinkedHashMap<>();
+            attributes.getOrDefault(type, Collections.emptyList()).forEach(key -> owners.putIfAbsent(key, type));
+            for (List<String> layer : layers) {
+                for (String member : layer)
+                    attributes.getOrDefault(member, Collections.emptyList()).forEach(key -> owners.putIfAbsent(key, member));
+            }
+            owners.forEach((key, owner) -> builder.attribute(type, key, owner));
+        }
+        return builder.build();
+    }
+
+    private Set<String> findRooted() {
+        Map<String, List<String>> children = new HashMap<>();
+        metaAnnotations.forEach((type, parents) -> parents.forEach(parent -> children.computeIfAbsent(parent, p -> new ArrayList<>()).add(type)));
+
+        Set<String> rooted = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        rooted.add(ASPECT);
+        queue.add(ASPECT);
+        while (!queue.isEmpty()) {
+            for (String child : children.getOrDefault(queue.poll(), Collections.emptyList())) {
+                if (rooted.add(child))
+                    queue.add(child);
+            }
+        }
+        return rooted;
+    }
+
+    private boolean computeDepths(String type, Set<String> rooted, Map<String, BitSet> depths, Set<String> visiting) {
+        if (depths.containsKey(type))
+            return depths.get(type) != null;
+        if (!visiting.add(type))
+            return false;
+
+        BitSet typeDepths = new BitSet();
+        if (ASPECT.equals(type))
+            typeDepths.set(0);
+        for (String parent : metaAnnotations.getOrDefault(type, Collections.emptyList())) {
+            if (!rooted.contains(parent))
+                continue;
+            if (!computeDepths(parent, rooted, depths, visiting)) {
+                depths.put(type, null);
+                return false;
+            }
+            depths.get(parent).stream().forEach(depth -> typeDepths.set(depth + 1));
+        }
+        visiting.remove(type);
+        depths.put(type, typeDepths);
+        return true;
+    }
+
+    private void collectLayers(String type, Set<String> rooted, Map<String, BitSet> depths, List<List<String>> layers,
+                               Set<String> visited) {
+        if (!visited.add(type))
+            return;
+        depths.get(type).stream().forEach(depth -> {
+            while (layers.size() <= depth)
+                layers.add(new ArrayList<>());
+            layers.get(depth).add(type);
+        });
+        for (String parent : metaAnnotations.getOrDefault(type, Collections.emptyList())) {
+            if (rooted.contains(parent))
+                collectLayers(parent, rooted, depths, layers, visited);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package injectr.annotation.metrics;
+
+import injectr.annotation.proxy.ResolverListener;
+
+import javax.management.*;
+import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ResolverListener} which aggregates counters and latency histograms, and which can be exposed as a JMX MBean.
+ * One instance may be shared by several resolvers, the graph size is the size last reported by any of them.
+ *
+ * @see injectr.annotation.proxy.AnnotationInheritanceResolver#setListener(ResolverListener)
+ */
+public class ResolverMetrics implements ResolverListener, ResolverMetricsMBean {
+
+    private final LongAdder resolutionHits = new LongAdder();
+    private final LongAdder resolutionMisses = new LongAdder();
+    private final LongAdder mergedVertices = new LongAdder();
+    private final LatencyHistogram mergeLatency = new LatencyHistogram();
+    private volatile int graphVertices, graphEdges;
+    private final LatencyHistogram castLatency = new LatencyHistogram();
+    private final LongAdder castPlansCreated = new LongAdder();
+    private final LongAdder castInstancesCreated = new LongAdder();
+    private final LongAdder slowPathResolutions = new LongAdder();
+    private final LongAdder cachedDispatches = new LongAdder();
+
+    /**
+     * Registers these metrics with the platform MBean server.
+     *
+     * @param name The object name, e.g. {@code injectr:type=ResolverMetrics}.
+     * @throws JMException If the name is invalid or already registered.
+     */
+    public void register(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+    }
+
+    @Override
+    public void resolved(Class<? extends Annotation> annotationClass, boolean cached) {
+        (cached ? resolutionHits : resolutionMisses).increment();
+    }
+
+    @Override
+    public void merged(int newVertices, long nanos, int vertices, int edges) {
+        mergedVertices.add(newVertices);
+        mergeLatency.record(nanos);
+        graphVertices = vertices;
+        graphEdges = edges;
+    }
+
+    @Override
+    public void cast(Class<? extends Annotation> annotationClass, Class<? extends Annotation> toClass, long nanos) {
+        castLatency.record(nanos);
+    }
+
+    @Override
+    public void castPlanCreated(Class<? extends Annotation> annotationClass, Class<? extends Annotation> toClass) {
+        castPlansCreated.increment();
+    }
+
+    @Override
+    public void castInstanceCreated(Class<? extends Annotation> annotationClass, Class<? extends Annotation> toClass) {
+        castInstancesCreated.increment();
+    }
+
+    @Override
+    public void attributeLocated(Class<? extends Annotation> annotationClass, String attribute) {
+        slowPathResolutions.increment();
+    }
+
+    @Override
+    public void attributeDispatched(Class<? extends Annotation> annotationClass) {
+        cachedDispatches.increment();
+    }
+
+    @Override
+    public long getResolutionHits() {
+        return resolutionHits.sum();
+    }
+
+    @Override
+    public long getResolutionMisses() {
+        return resolutionMisses.sum();
+    }
+
+    @Override
+    public long getMerges() {
+        return mergeLatency.count();
+    }
+
+    @Override
+    public long getMergedVertices() {
+        return mergedVertices.sum();
+    }
+
+    @Override
+    public double getMeanMergeNanos() {
+        return mergeLatency.mean();
+    }
+
+    @Override
+    public long getMergeNanos99thPercentile() {
+        return mergeLatency.percentile(99);
+    }
+
+    @Override
+    public int getGraphVertices() {
+        return graphVertices;
+    }
+
+    @Override
+    public int getGraphEdges() {
+        return graphEdges;
+    }
+
+    @Override
+    public long getCasts() {
+        return castLatency.count();
+    }
+
+    @Override
+    public long getCastPlansCreated() {
+        return castPlansCreated.sum();
+    }
+
+    @Override
+    public double getCastPlanHitRate() {
+        long casts = getCasts();
+        return casts == 0 ? 0 : Math.max(0, 1 - (double) getCastPlansCreated() / casts);
+    }
+
+    @Override
+    public long getCastInstancesCreated() {
+        return castInstancesCreated.sum();
+    }
+
+    @Override
+    public double getMeanCastNanos() {
+        return castLatency.mean();
+    }
+
+    @Override
+    public long getCastNanos99thPercentile() {
+        return castLatency.percentile(99);
+    }
+
+    @Override
+    public long getSlowPathResolutions() {
+        return slowPathResolutions.sum();
+    }
+
+    @Override
+    public long getCachedDispatches() {
+        return cachedDispatches.sum();
+    }
+
+    public LatencyHistogram getMergeLatency() {
+        return mergeLatency;
+    }
+
+    public LatencyHistogram getCastLatency() {
+        return castLatency;
+    }
+
+    @Override
+    public void reset() {
+        resolutionHits.reset();
+        resolutionMisses.reset();
+        mergedVertices.reset();
+        mergeLatency.reset();
+        castLatency.reset();
+        castPlansCreated.reset();
+        castInstancesCreated.reset();
+        slowPathResolutions.reset();
+        cachedDispatches.reset();
+    }
+}
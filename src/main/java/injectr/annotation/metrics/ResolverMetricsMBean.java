@@ -0,0 +1,41 @@
+package injectr.annotation.metrics;
+
+/**
+ * The JMX view of {@link ResolverMetrics}, latencies are in nanoseconds.
+ */
+public interface ResolverMetricsMBean {
+
+    long getResolutionHits();
+
+    long getResolutionMisses();
+
+    long getMerges();
+
+    long getMergedVertices();
+
+    double getMeanMergeNanos();
+
+    long getMergeNanos99thPercentile();
+
+    int getGraphVertices();
+
+    int getGraphEdges();
+
+    long getCasts();
+
+    long getCastPlansCreated();
+
+    double getCastPlanHitRate();
+
+    long getCastInstancesCreated();
+
+    double getMeanCastNanos();
+
+    long getCastNanos99thPercentile();
+
+    long getSlowPathResolutions();
+
+    long getCachedDispatches();
+
+    void reset();
+}
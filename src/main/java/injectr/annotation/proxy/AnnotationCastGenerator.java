@@ -0,0 +1,188 @@
+package injectr.annotation.proxy;
+
+import injectr.util.ClassDefiner;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Generates one concrete class per (annotation type, cast type) pair which implements every flattened type directly.
+ * Each accessor reads its value straight from the annotation instance resolved by {@link AnnotationProxy#locate(Method)},
+ * so no {@link java.lang.reflect.InvocationHandler} is involved when reading attributes.
+ */
+final class AnnotationCastGenerator {
+
+    private static final String ANNOTATION_DESCRIPTOR = Type.getDescriptor(Annotation.class);
+    private static final String CONSTRUCTOR_DESCRIPTOR = "(" + ANNOTATION_DESCRIPTOR + "[" + ANNOTATION_DESCRIPTOR + ")V";
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    private AnnotationCastGenerator() {}
+
+    /**
+     * Generates the cast implementation for the provided annotation's type.
+     *
+     * @return The generated implementation, or null if the types involved cannot be implemented by a generated class
+     * (e.g. non-public types split across packages).
+     */
+    static GeneratedCast generate(AnnotationProxy planner, Annotation annotation,
+                                  Collection<Class<? extends Annotation>> flattenedTypes) {
+        Class<? extends Annotation> annotationType = annotation.annotationType();
+
+        //Resolve every abstract member once, methods with identical descriptors are only implemented once
+        Map<String, Method> members = new LinkedHashMap<>();
+        for (Class<? extends Annotation> type : flattenedTypes) {
+            for (Method method : type.getMethods()) {
+                if (Modifier.isAbstract(method.getModifiers()))
+                    members.putIfAbsent(AttributeSignatures.key(method), method);
+            }
+        }
+
+        //Slot 0 is always the original annotation, the rest are the meta-annotations supplying inherited values
+        List<Annotation> sources = new ArrayList<>();
+        sources.add(annotation);
+        Map<Annotation, Integer> slots = new IdentityHashMap<>();
+        slots.put(annotation, 0);
+        Map<Method, AttributeSource> resolved = new LinkedHashMap<>();
+        for (Method member : members.values()) {
+            AttributeSource source = planner.locate(member);
+            resolved.put(member, source);
+            slots.computeIfAbsent(source.instance, instance -> {
+                sources.add(instance);
+                return sources.size() - 1;
+            });
+        }
+
+        Set<Class<?>> referenced = new LinkedHashSet<>(flattenedTypes);
+        sources.forEach(source -> referenced.add(source.annotationType()));
+        Class<?> neighbor = findNeighbor(annotationType, referenced);
+        if (neighbor == null)
+            return null;
+
+        String name = neighbor.getName() + "$$InjectrCast$" + classCounter.incrementAndGet();
+        byte[] bytecode = writeClass(name.replace('.', '/'), flattenedTypes, sources, slots, resolved);
+        try {
+            //Resolvers do not share plans, so a permanently defined class would leak with every short lived resolver
+            Class<?> implementation = ClassDefiner.defineHidden(neighbor, bytecode);
+            if (implementation == null) //Before Java 15
+                implementation = ClassDefiner.defineNeighbor(neighbor, name, bytecode);
+            Constructor<?> constructor = implementation.getConstructor(Annotation.class, Annotation[].class);
+            return new GeneratedCast(constructor, sources.subList(1, sources.size()).toArray(new Annotation[0]));
+        } catch (LinkageError | ReflectiveOperationException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the class next to which the implementation must be defined, non-public types can only be implemented from
+     * within their own runtime package.
+     */
+    static Class<?> findNeighbor(Class<? extends Annotation> annotationType, Set<Class<?>> referenced) {
+        Class<?> neighbor = annotationType;
+        if (Modifier.isPublic(annotationType.getModifiers())) {
+            for (Class<?> type : referenced) {
+                if (!Modifier.isPublic(type.getModifiers())) {
+                    neighbor = type;
+                    break;
+                }
+            }
+        }
+
+        for (Class<?> type : referenced) {
+            if (!Modifier.isPublic(type.getModifiers()) && (type.getClassLoader() != neighbor.getClassLoader()
+                    || !packageOf(type).equals(packageOf(neighbor))))
+                return null;
+        }
+        return neighbor;
+    }
+
+    private static String packageOf(Class<?> type) {
+        int index = type.getName().lastIndexOf('.');
+        return index < 0 ? "" : type.getName().substring(0, index);
+    }
+
+    private static byte[] writeClass(String internalName, Collection<Class<? extends Annotation>> flattenedTypes,
+                                     List<Annotation> sources, Map<Annotation, Integer> slots,
+                                     Map<Method, AttributeSource> resolved) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        String[] interfaces = flattenedTypes.stream().map(Type::getInternalName).toArray(String[]::new);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, internalName, null,
+                "java/lang/Object", interfaces);
+
+        for (int i = 0; i < sources.size(); i++)
+            writer.visitField(ACC_PRIVATE | ACC_FINAL, "source" + i,
+                    Type.getDescriptor(sources.get(i).annotationType()), null, null).visitEnd();
+
+        MethodVisitor constructor = writer.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESCRIPTOR, null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        for (int i = 0; i < sources.size(); i++) {
+            constructor.visitVarInsn(ALOAD, 0);
+            if (i == 0) {
+                constructor.visitVarInsn(ALOAD, 1);
+            } else {
+                constructor.visitVarInsn(ALOAD, 2);
+                constructor.visitLdcInsn(i - 1);
+                constructor.visitInsn(AALOAD);
+            }
+            Class<? extends Annotation> sourceType = sources.get(i).annotationType();
+            constructor.visitTypeInsn(CHECKCAST, Type.getInternalName(sourceType));
+            constructor.visitFieldInsn(PUTFIELD, internalName, "source" + i, Type.getDescriptor(sourceType));
+        }
+        constructor.visitInsn(RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        resolved.forEach((member, source) -> {
+            MethodVisitor accessor = writer.visitMethod(ACC_PUBLIC | ACC_FINAL, member.getName(),
+                    Type.getMethodDescriptor(member), null, null);
+            accessor.visitCode();
+            int slot = slots.get(source.instance);
+            accessor.visitVarInsn(ALOAD, 0);
+            accessor.visitFieldInsn(GETFIELD, internalName, "source" + slot,
+                    Type.getDescriptor(sources.get(slot).annotationType()));
+            int local = 1;
+            for (Type argument : Type.getArgumentTypes(member)) {
+                accessor.visitVarInsn(argument.getOpcode(ILOAD), local);
+                local += argument.getSize();
+            }
+            Class<?> owner = source.method.getDeclaringClass();
+            accessor.visitMethodInsn(owner.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL, Type.getInternalName(owner),
+                    source.method.getName(), Type.getMethodDescriptor(source.method), owner.isInterface());
+            accessor.visitInsn(Type.getReturnType(member).getOpcode(IRETURN));
+            accessor.visitMaxs(0, 0);
+            accessor.visitEnd();
+        });
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    static final class GeneratedCast {
+
+        private final Constructor<?> constructor;
+        private final Annotation[] inheritedSources;
+
+        GeneratedCast(Constructor<?> constructor, Annotation[] inheritedSources) {
+            this.constructor = constructor;
+            this.inheritedSources = inheritedSources;
+        }
+
+        Object newInstance(Annotation annotation) {
+            try {
+                return constructor.newInstance(annotation, inheritedSources);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
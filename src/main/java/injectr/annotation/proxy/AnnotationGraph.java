@@ -0,0 +1,107 @@
+package injectr.annotation.proxy;
+
+import java.lang.annotation.Annotation;
+import java.util.*;
+
+/**
+ * Compact immutable form of the resolved annotation hierarchy. Every annotation type is given a dense id, in the order
+ * in which it was merged, and the edges are stored as compressed parent and child adjacency arrays so traversals only
+ * touch primitive arrays.
+ *
+ * The parents of the vertex {@code id} are {@code parents[parentOffsets[id]]} up to (excluding)
+ * {@code parents[parentOffsets[id + 1]]}, children are stored the same way. Ids are stable: extending the graph only
+ * appends vertices, as the parents of an already merged annotation never change.
+ */
+final class AnnotationGraph {
+
+    private final Map<Class<? extends Annotation>, Integer> ids;
+    private final List<Class<? extends Annotation>> vertices;
+    final int[] parentOffsets, parents;
+    final int[] childOffsets, children;
+
+    private AnnotationGraph(Map<Class<? extends Annotation>, Integer> ids, List<Class<? extends Annotation>> vertices,
+                            int[] parentOffsets, int[] parents) {
+        this.ids = ids;
+        this.vertices = vertices;
+        this.parentOffsets = parentOffsets;
+        this.parents = parents;
+
+        //Transpose the parent arrays, children of a vertex end up sorted by id
+        childOffsets = new int[vertices.size() + 1];
+        for (int parent : parents)
+            childOffsets[parent + 1]++;
+        for (int id = 0; id < vertices.size(); id++)
+            childOffsets[id + 1] += childOffsets[id];
+        children = new int[parents.length];
+        int[] next = Arrays.copyOf(childOffsets, vertices.size());
+        for (int id = 0; id < vertices.size(); id++) {
+            for (int i = parentOffsets[id]; i < parentOffsets[id + 1]; i++)
+                children[next[parents[i]]++] = id;
+        }
+    }
+
+    /**
+     * @return A graph only containing the root, with the id 0.
+     */
+    static AnnotationGraph of(Class<? extends Annotation> root) {
+        return new AnnotationGraph(Collections.singletonMap(root, 0), Collections.singletonList(root),
+                new int[2], new int[0]);
+    }
+
+    /**
+     * Creates a copy of this graph with the provided vertices appended. Their parents are taken from the trees, only
+     * keeping parents which are part of the new graph.
+     */
+    AnnotationGraph extend(Collection<Class<? extends Annotation>> added, AnnotationTrees trees) {
+        Map<Class<? extends Annotation>, Integer> extendedIds = new HashMap<>(ids);
+        List<Class<? extends Annotation>> extendedVertices = new ArrayList<>(vertices);
+        for (Class<? extends Annotation> vertex : added) {
+            if (!extendedIds.containsKey(vertex)) {
+                extendedIds.put(vertex, extendedVertices.size());
+                extendedVertices.add(vertex);
+            }
+        }
+
+        int[] extendedOffsets = Arrays.copyOf(parentOffsets, extendedVertices.size() + 1);
+        int[] extendedParents = Arrays.copyOf(parents, parents.length + added.size());
+        int edges = parents.length;
+        for (int id = size(); id < extendedVertices.size(); id++) {
+            extendedOffsets[id] = edges;
+            for (Class<? extends Annotation> parent : trees.parentsOf(extendedVertices.get(id))) {
+                Integer parentId = extendedIds.get(parent);
+                if (parentId == null)
+                    continue;
+                if (edges == extendedParents.length)
+                    extendedParents = Arrays.copyOf(extendedParents, edges * 2 + 1);
+                extendedParents[edges++] = parentId;
+            }
+        }
+        extendedOffsets[extendedVertices.size()] = edges;
+        return new AnnotationGraph(extendedIds, extendedVertices, extendedOffsets,
+                Arrays.copyOf(extendedParents, edges));
+    }
+
+    int size() {
+        return vertices.size();
+    }
+
+    int edgeCount() {
+        return parents.length;
+    }
+
+    boolean containsVertex(Class<? extends Annotation> annotationClass) {
+        return ids.containsKey(annotationClass);
+    }
+
+    /**
+     * @return The id of the annotation type, or -1 if it is not part of this graph.
+     */
+    int id(Class<? extends Annotation> annotationClass) {
+        Integer id = ids.get(annotationClass);
+        return id == null ? -1 : id;
+    }
+
+    Class<? extends Annotation> vertex(int id) {
+        return vertices.get(id);
+    }
+}
@@ -1,44 +1,198 @@
 package injectr.annotation.proxy;
 
 import injectr.annotation.Aspect;
-import injectr.util.SimpleEdgeFactory;
+import injectr.annotation.index.AspectIndex;
+import injectr.annotation.index.AspectSnapshot;
+import injectr.util.ClassPairCache;
+import injectr.util.PackageFilter;
 import injectr.util.SimpleEdgeFactory.SimpleEdge;
-import org.jgrapht.Graph;
-import org.jgrapht.alg.shortestpath.AllDirectedPaths;
-import org.jgrapht.graph.DefaultDirectedGraph;
 
+import java.io.IOException;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Proxy;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Member;
+import java.lang.reflect.Parameter;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class AnnotationInheritanceResolver {
 
-    private static final Collection<String> JAVA_PACKAGE_PREFIXES = new CopyOnWriteArraySet<>();
+    private static final int UNROOTED_CACHE_SIZE = 1024;
 
-    static {
-        JAVA_PACKAGE_PREFIXES.add("java");
-        JAVA_PACKAGE_PREFIXES.add("javax");
-        JAVA_PACKAGE_PREFIXES.add("com.sun");
-        JAVA_PACKAGE_PREFIXES.add("sun");
-        JAVA_PACKAGE_PREFIXES.add("oracle");
-        JAVA_PACKAGE_PREFIXES.add("org.xml");
-        JAVA_PACKAGE_PREFIXES.add("com.oracle");
+    private final Object writeLock = new Object(); //Serializes index updates
+    private final Partition shared = new Partition(); //Aspect's class loader (and its parents), never dropped
+    private final Map<ClassLoader, WeakReference<Partition>> loaderPartitions = new WeakHashMap<>(); //Guarded by itself
+    private final ClassValue<Partition> partitions = new ClassValue<Partition>() { //Keyed by the annotation type
+        @Override
+        protected Partition computeValue(Class<?> type) {
+            return partitionFor(type.getClassLoader());
+        }
+    };
+    private volatile AspectIndex aspectIndex = AspectIndex.EMPTY;
+    private final CastMode castMode;
+    private final PackageFilter ignoredPackages;
+    private final UnrootedCache unrooted = new UnrootedCache(UNROOTED_CACHE_SIZE);
+    final ListenerHolder listeners = new ListenerHolder(); //Shared with cast plans, which must not reference the resolver
+    private volatile CastInterner castInterner; //Null unless interning
+    private final ClassValue<Map<Class<? extends Annotation>, Annotation>> provenance
+            = new ClassValue<Map<Class<? extends Annotation>, Annotation>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected Map<Class<? extends Annotation>, Annotation> computeValue(Class<?> type) {
+            return buildProvenance((Class<? extends Annotation>) type);
+        }
+    };
+    private final ClassPairCache<CastPlan> castPlans = new ClassPairCache<>(); //Keyed by (annotation type, cast type)
+    private final ClassValue<ConcurrentMap<AnnotatedElement, ElementAspects>> elementAspects
+            = new ClassValue<ConcurrentMap<AnnotatedElement, ElementAspects>>() { //Keyed by the declaring class
+        @Override
+        protected ConcurrentMap<AnnotatedElement, ElementAspects> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    public AnnotationInheritanceResolver() {
+        this(CastMode.PROXY);
     }
 
-    final Graph<Class<? extends Annotation>, SimpleEdge<Class<? extends Annotation>>> dependencies
-            = new DefaultDirectedGraph<>(new SimpleEdgeFactory<>());
-    final AllDirectedPaths<Class<? extends Annotation>, SimpleEdge<Class<? extends Annotation>>> pathfinder
-            = new AllDirectedPaths<>(dependencies);
+    public AnnotationInheritanceResolver(CastMode castMode) {
+        this(castMode, PackageFilter.JAVA);
+    }
 
-    public AnnotationInheritanceResolver() {
-        dependencies.addVertex(Aspect.class);
+    /**
+     * @param castMode The strategy used to build casts.
+     * @param ignoredPackages The packages whose annotations are never part of the hierarchy, so they are skipped without
+     *                        being scanned (e.g. {@code PackageFilter.JAVA.with("com.fasterxml", "org.hibernate")}).
+     */
+    public AnnotationInheritanceResolver(CastMode castMode, PackageFilter ignoredPackages) {
+        this.castMode = castMode;
+        this.ignoredPackages = ignoredPackages;
+    }
+
+    /**
+     * Sets the listener receiving instrumentation events, events are not produced while no listener is set.
+     *
+     * @param listener The listener, or null to disable instrumentation.
+     */
+    public void setListener(ResolverListener listener) {
+        listeners.listener = listener;
+    }
+
+    /**
+     * Sets the interner used to reuse casts of the same annotation instance to the same type.
+     *
+     * @param castInterner The interner, or null to create a new cast on every call.
+     */
+    public void setCastInterner(CastInterner castInterner) {
+        this.castInterner = castInterner;
+    }
+
+    /**
+     * Loads every {@link AspectIndex} visible to the class loader, so the indexed annotation types are resolved and
+     * cast from their precomputed hierarchy instead of being scanned reflectively.
+     *
+     * Only the hierarchy is precomputed: the cast plan of each (annotation type, cast type) pair (its proxy class,
+     * dispatch table or generated class) is still built on the first cast of that pair, using the indexed attribute
+     * owners instead of scanning the annotation types.
+     *
+     * @param loader The class loader to search for indexes.
+     *
+     * @see injectr.annotation.index.AspectIndexProcessor
+     */
+    public void bootstrap(ClassLoader loader) {
+        bootstrap(AspectIndex.load(loader));
+    }
+
+    /**
+     * Adds a precomputed hierarchy, so the indexed annotation types are resolved and cast from it instead of being
+     * scanned reflectively. Cast plans are still built on first use, see {@link #bootstrap(ClassLoader)}.
+     *
+     * @param index The index to add.
+     */
+    public void bootstrap(AspectIndex index) {
+        synchronized (writeLock) {
+            //Indexes are produced with a fixed filter, so drop what this resolver's filter resolves differently
+            aspectIndex = new AspectIndex.Builder().merge(aspectIndex).merge(index.without(ignoredPackages)).build();
+        }
+    }
+
+    /**
+     * Exports every annotation type resolved so far, along with every bootstrapped type, as an index.
+     *
+     * @return The index of the resolved hierarchy.
+     */
+    public AspectIndex toIndex() {
+        AspectIndex.Builder builder = new AspectIndex.Builder().merge(aspectIndex);
+        for (Partition partition : livePartitions()) {
+            HierarchySnapshot resolved = partition.snapshot;
+            AnnotationGraph graph = resolved.graph;
+            for (int id = 0; id < graph.size(); id++) {
+                Class<? extends Annotation> type = graph.vertex(id);
+                if (type == Aspect.class)
+                    continue;
+
+                List<String> parents = new ArrayList<>();
+                for (int i = graph.parentOffsets[id]; i < graph.parentOffsets[id + 1]; i++)
+                    parents.add(graph.vertex(graph.parents[i]).getName());
+                builder.parents(type.getName(), parents);
+
+                List<List<Class<? extends Annotation>>> layers = new ArrayList<>();
+                for (Set<Class<? extends Annotation>> layer : resolved.prioritize(type)) {
+                    List<Class<? extends Annotation>> sorted = new ArrayList<>(layer);
+                    sorted.sort(Comparator.comparing(Class::getName));
+                    layers.add(sorted);
+                }
+                builder.layers(type.getName(), layers.stream()
+                        .map(layer -> layer.stream().map(Class::getName).collect(Collectors.toList()))
+                        .collect(Collectors.toList()));
+
+                //The type supplies its own attributes first, then the layers in breadth first order
+                Map<String, String> owners = new LinkedHashMap<>();
+                new TreeSet<>(AttributeSignatures.keys(type)).forEach(key -> owners.put(key, type.getName()));
+                for (List<Class<? extends Annotation>> layer : layers) {
+                    for (Class<? extends Annotation> member : layer)
+                        new TreeSet<>(AttributeSignatures.keys(member)).forEach(key -> owners.putIfAbsent(key, member.getName()));
+                }
+                owners.forEach((key, owner) -> builder.attribute(type.getName(), key, owner));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Persists every resolved annotation type to a snapshot keyed by the fingerprint of the class path, so later runs
+     * can start from the resolved hierarchy through {@link #loadSnapshot(Path)}.
+     *
+     * @param file The file to write.
+     * @throws IOException If the snapshot could not be written.
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        AspectSnapshot.write(file, toIndex(), AspectSnapshot.classPathFingerprint());
+    }
+
+    /**
+     * Bootstraps the hierarchy from a snapshot written by {@link #writeSnapshot(Path)}, the persisted annotation types
+     * are only loaded once they are first resolved.
+     *
+     * @param file The snapshot to read.
+     * @return True if the snapshot was loaded, false if it does not exist or was written for a different class path (in
+     * which case annotation types keep being resolved reflectively).
+     * @throws IOException If the file is not a valid snapshot.
+     */
+    public boolean loadSnapshot(Path file) throws IOException {
+        AspectIndex index = AspectSnapshot.read(file, AspectSnapshot.classPathFingerprint());
+        if (index == null)
+            return false;
+        bootstrap(index);
+        return true;
     }
 
     public boolean isInstanceOf(Class<? extends Annotation> annotation1, Class<? extends Annotation> annotation2) {
-        return flattenDependencies(annotation1).contains(annotation2);
+        return resolve(annotation1).index.isAncestor(annotation2, annotation1);
     }
 
     public boolean isInstanceOf(Annotation annotation1, Annotation annotation2) {
@@ -46,90 +200,370 @@ public class AnnotationInheritanceResolver {
     }
 
     public <T extends Annotation> T cast(Annotation annotation, Class<T> toClass) {
-        if (!isInstanceOf(annotation.annotationType(), toClass)) throw new ClassCastException(String.format("Cannot cast %s to %s!", annotation.annotationType(), toClass));
-
-        List<Set<Class<? extends Annotation>>> prioritizedDependencies = new ArrayList<>();
-        pathfinder.getAllPaths(Aspect.class, annotation.annotationType(), true, null).forEach(path -> {
-            for (int i = 0; i < path.getLength(); i++) {
-                SimpleEdge<Class<? extends Annotation>> edge = path.getEdgeList().get(i);
-                int mappedIndex = i+1;
-                while (prioritizedDependencies.size() <= mappedIndex) {
-                    prioritizedDependencies.add(new HashSet<>());
+        ResolverListener listener = listeners.listener;
+        long start = listener == null ? 0 : System.nanoTime();
+        CastInterner interner = this.castInterner;
+        T cast = interner == null ? null : toClass.cast(interner.get(annotation, toClass));
+        if (cast == null) {
+            if (!isInstanceOf(annotation.annotationType(), toClass)) throw new ClassCastException(String.format("Cannot cast %s to %s!", annotation.annotationType(), toClass));
+
+            cast = toClass.cast(planFor(annotation, toClass).cast(annotation));
+            if (interner != null)
+                interner.put(annotation, toClass, cast);
+        }
+        if (listener != null)
+            listener.cast(annotation.annotationType(), toClass, System.nanoTime() - start);
+        return cast;
+    }
+
+    /**
+     * Finds the annotations of an element which are rooted at {@link Aspect}. Results for classes, constructors,
+     * methods, fields and parameters are cached alongside their declaring class.
+     *
+     * @param element The annotated element.
+     * @return The element's aspect annotations, in declaration order.
+     */
+    public List<Annotation> aspectsOf(AnnotatedElement element) {
+        return aspectsFor(element).aspects;
+    }
+
+    /**
+     * Finds the annotations of an element which are instances of the provided aspect, cast to it. Results for classes,
+     * constructors, methods, fields and parameters are cached alongside their declaring class.
+     *
+     * @param element The annotated element.
+     * @param aspect The aspect to cast to.
+     * @return The matching annotations cast to the aspect, in declaration order.
+     */
+    public <T extends Annotation> List<T> aspectsOf(AnnotatedElement element, Class<T> aspect) {
+        return aspectsFor(element).castTo(this, aspect);
+    }
+
+    private ElementAspects aspectsFor(AnnotatedElement element) {
+        Class<?> declaringClass = declaringClassOf(element);
+        if (declaringClass == null) //Not cacheable (e.g. a package)
+            return new ElementAspects(this, element);
+        ConcurrentMap<AnnotatedElement, ElementAspects> cached = elementAspects.get(declaringClass);
+        ElementAspects aspects = cached.get(element);
+        return aspects != null ? aspects : cached.computeIfAbsent(element, e -> new ElementAspects(this, e));
+    }
+
+    private static Class<?> declaringClassOf(AnnotatedElement element) {
+        if (element instanceof Class)
+            return (Class<?>) element;
+        if (element instanceof Member)
+            return ((Member) element).getDeclaringClass();
+        if (element instanceof Parameter)
+            return ((Parameter) element).getDeclaringExecutable().getDeclaringClass();
+        return null;
+    }
+
+    boolean isAspect(Class<? extends Annotation> annotationClass) {
+        return annotationClass != Aspect.class && resolve(annotationClass).contains(annotationClass);
+    }
+
+    CastPlan planFor(Annotation annotation, Class<? extends Annotation> toClass) {
+        return castPlans.get(annotation.annotationType(), toClass, () -> {
+            ResolverListener listener = listeners.listener;
+            if (listener != null)
+                listener.castPlanCreated(annotation.annotationType(), toClass);
+            Class<? extends Annotation> annotationType = annotation.annotationType();
+            CastContext context = new CastContext(listeners, indexedAttributes(annotationType),
+                    indexedAttributes(toClass), provenanceOf(annotationType));
+            return CastPlan.create(context, annotation, toClass, prioritizeDependencies(annotationType), castMode);
+        });
+    }
+
+    List<Set<Class<? extends Annotation>>> prioritizeDependencies(Class<? extends Annotation> annotationClass) {
+        HierarchySnapshot resolved = resolve(annotationClass);
+        List<List<String>> indexedLayers = aspectIndex.layersOf(annotationClass.getName());
+        if (indexedLayers != null) {
+            try {
+                List<Set<Class<? extends Annotation>>> layers = new ArrayList<>();
+                for (List<String> indexedLayer : indexedLayers) {
+                    Set<Class<? extends Annotation>> layer = new HashSet<>();
+                    for (String name : indexedLayer)
+                        layer.add(loadAnnotation(name, annotationClass));
+                    layers.add(layer);
                 }
-                if (i == 0) {
-                    prioritizedDependencies.get(i).add(edge.getSource());
+                return layers;
+            } catch (ClassNotFoundException e) {
+                //Stale index, plan from the resolved graph instead
+            }
+        }
+        return resolved.prioritize(annotationClass);
+    }
+
+    /**
+     * Gets the meta-annotation instances supplying the attribute values of every ancestor of an annotation type. Each
+     * ancestor is supplied by the annotation on the closest type it annotates, following the layering used by casts.
+     * The table is built once per type, as ancestry never changes once resolved.
+     *
+     * @return An immutable map from the type's ancestors to the instances supplying their values.
+     */
+    Map<Class<? extends Annotation>, Annotation> provenanceOf(Class<? extends Annotation> annotationClass) {
+        return provenance.get(annotationClass);
+    }
+
+    private Map<Class<? extends Annotation>, Annotation> buildProvenance(Class<? extends Annotation> annotationClass) {
+        AnnotationGraph graph = resolve(annotationClass).graph;
+        int id = graph.id(annotationClass);
+        if (id < 0)
+            return Collections.emptyMap();
+
+        //Breadth first from the annotation towards Aspect, the first path reaching an ancestor is a shortest one
+        Map<Class<? extends Annotation>, Annotation> suppliers = new HashMap<>();
+        BitSet visited = new BitSet();
+        visited.set(id);
+        int[] queue = new int[graph.size()];
+        int head = 0, tail = 0;
+        queue[tail++] = id;
+        while (head < tail) {
+            int current = queue[head++];
+            Class<? extends Annotation> currentClass = graph.vertex(current);
+            for (int i = graph.parentOffsets[current]; i < graph.parentOffsets[current + 1]; i++) {
+                int parent = graph.parents[i];
+                if (!visited.get(parent)) {
+                    visited.set(parent);
+                    Class<? extends Annotation> parentClass = graph.vertex(parent);
+                    suppliers.put(parentClass, currentClass.getAnnotation(parentClass));
+                    queue[tail++] = parent;
                 }
-                prioritizedDependencies.get(mappedIndex).add(edge.getSink());
             }
-        });
-        Set<Class<? extends Annotation>> flattenedTypes = prioritizedDependencies.stream().flatMap(Set::stream).collect(Collectors.toSet());
-        flattenedTypes.add(annotation.annotationType());
-        AnnotationProxy proxy = new AnnotationProxy(this, annotation, toClass, prioritizedDependencies);
-        return (T) Proxy.newProxyInstance(toClass.getClassLoader(), flattenedTypes.toArray(new Class[0]), proxy);
+        }
+        return Collections.unmodifiableMap(suppliers);
+    }
+
+    /**
+     * @return The indexed attribute keys of the type mapped to the names of the types supplying them, or null if the
+     * type has not been indexed.
+     */
+    Map<String, String> indexedAttributes(Class<? extends Annotation> annotationClass) {
+        return aspectIndex.attributesOf(annotationClass.getName());
     }
 
     public Set<SimpleEdge<Class<? extends Annotation>>> resolveDependencies(Class<? extends Annotation> annotationClass) {
-        if (Aspect.class.equals(annotationClass))
-            return Collections.emptySet();
+        return resolve(annotationClass).edgesTo(annotationClass);
+    }
+
+    public Set<Class<? extends Annotation>> flattenDependencies(Class<? extends Annotation> annotationClass) {
+        return resolve(annotationClass).index.ancestorsOf(annotationClass);
+    }
+
+    /**
+     * Resolves many annotation types at once. The annotation trees are discovered in parallel and then merged into the
+     * hierarchy with a single merge per class loader, so later queries and casts of any of the types only cost a volatile
+     * read.
+     *
+     * @param annotationClasses The annotation types to resolve.
+     * @return The provided types which are rooted at {@link Aspect}.
+     */
+    public Set<Class<? extends Annotation>> resolveAll(Collection<Class<? extends Annotation>> annotationClasses) {
+        Map<Partition, List<Class<? extends Annotation>>> byPartition = new IdentityHashMap<>();
+        for (Class<? extends Annotation> annotationClass : annotationClasses)
+            byPartition.computeIfAbsent(partitions.get(annotationClass), p -> new ArrayList<>()).add(annotationClass);
 
-        if (!dependencies.containsVertex(annotationClass)) {
-            moveTrees(getRelevantAnnotationClasses(annotationClass), dependencies);
-            pruneUnrootedVertices();
+        Map<Partition, HierarchySnapshot> resolved = new IdentityHashMap<>();
+        byPartition.forEach((partition, partitionClasses) -> {
+            HierarchySnapshot current = partition.snapshot;
+            List<AnnotationTrees> discovered = partitionClasses.parallelStream()
+                    .distinct()
+                    .filter(annotationClass -> !current.contains(annotationClass) && !unrooted.contains(annotationClass))
+                    .map(this::getRelevantAnnotationClasses)
+                    .collect(Collectors.toList());
+
+            if (discovered.isEmpty()) {
+                resolved.put(partition, current);
+                return;
+            }
+            AnnotationTrees trees = new AnnotationTrees();
+            discovered.forEach(trees::addAll);
+            synchronized (partition.writeLock) {
+                resolved.put(partition, partition.snapshot = merge(partition, partition.snapshot, trees));
+            }
+        });
+
+        Set<Class<? extends Annotation>> rooted = new LinkedHashSet<>();
+        for (Class<? extends Annotation> annotationClass : annotationClasses) {
+            if (resolved.get(partitions.get(annotationClass)).contains(annotationClass))
+                rooted.add(annotationClass);
+            else
+                unrooted.add(annotationClass);
         }
+        return rooted;
+    }
 
-        if (!dependencies.containsVertex(annotationClass))
-            return Collections.emptySet();
+    /**
+     * The currently resolved hierarchy of the annotation types defined by {@link Aspect}'s class loader (or its
+     * parents), this graph is immutable.
+     */
+    AnnotationGraph dependencies() {
+        return shared.snapshot.graph;
+    }
 
-        Set<SimpleEdge<Class<? extends Annotation>>> edges = new HashSet<>();
-        pathfinder.getAllPaths(Aspect.class, annotationClass, true, null).forEach(path -> edges.addAll(path.getEdgeList()));
-        return edges;
+    /**
+     * The currently resolved hierarchy of the annotation types defined by the class loader, this graph is immutable.
+     */
+    AnnotationGraph dependencies(ClassLoader loader) {
+        return partitionFor(loader).snapshot.graph;
     }
 
-    public Set<Class<? extends Annotation>> flattenDependencies(Class<? extends Annotation> annotationClass) {
-        return resolveDependencies(annotationClass).stream()
-                .flatMap(edge -> Stream.of(edge.getSource(), edge.getSink()))
-                .filter(cls -> !annotationClass.equals(cls))
-                .collect(Collectors.toSet());
+    private Partition partitionFor(ClassLoader loader) {
+        if (isShared(loader))
+            return shared;
+        synchronized (loaderPartitions) {
+            WeakReference<Partition> reference = loaderPartitions.get(loader);
+            Partition partition = reference == null ? null : reference.get();
+            if (partition == null) {
+                partition = new Partition();
+                loaderPartitions.put(loader, new WeakReference<>(partition));
+            }
+            return partition;
+        }
     }
 
-    private static Graph<Class<? extends Annotation>, SimpleEdge<Class<? extends Annotation>>> getRelevantAnnotationClasses(Class<? extends Annotation> annotationClass) {
-        Graph<Class<? extends Annotation>, SimpleEdge<Class<? extends Annotation>>> annotationBranches
-                = new DefaultDirectedGraph<>(new SimpleEdgeFactory<>());
+    private List<Partition> livePartitions() {
+        List<Partition> live = new ArrayList<>();
+        live.add(shared);
+        synchronized (loaderPartitions) {
+            for (WeakReference<Partition> reference : loaderPartitions.values()) {
+                Partition partition = reference.get();
+                if (partition != null)
+                    live.add(partition);
+            }
+        }
+        return live;
+    }
+
+    private static boolean isShared(ClassLoader loader) {
+        if (loader == null)
+            return true;
+        for (ClassLoader sharedLoader = Aspect.class.getClassLoader(); sharedLoader != null; sharedLoader = sharedLoader.getParent()) {
+            if (sharedLoader == loader)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets a snapshot of the partition of the annotation's class loader, which contains the provided annotation class if
+     * it is rooted at {@link Aspect}. Already resolved classes (and recently resolved classes which are not rooted) only
+     * cost a volatile read, otherwise the annotation's tree is discovered without locking and then merged by a single
+     * writer.
+     */
+    private HierarchySnapshot resolve(Class<? extends Annotation> annotationClass) {
+        Partition partition = partitions.get(annotationClass);
+        HierarchySnapshot current = partition.snapshot;
+        ResolverListener listener = listeners.listener;
+        if (current.contains(annotationClass) || unrooted.contains(annotationClass)) {
+            if (listener != null)
+                listener.resolved(annotationClass, true);
+            return current;
+        }
+
+        if (listener != null)
+            listener.resolved(annotationClass, false);
+        AnnotationTrees trees = getRelevantAnnotationClasses(annotationClass);
+        synchronized (partition.writeLock) {
+            current = partition.snapshot;
+            if (!current.contains(annotationClass))
+                partition.snapshot = current = merge(partition, current, trees);
+        }
+        if (!current.contains(annotationClass))
+            unrooted.add(annotationClass);
+        return current;
+    }
+
+    private HierarchySnapshot merge(Partition partition, HierarchySnapshot current, AnnotationTrees trees) {
+        ResolverListener listener = listeners.listener;
+        if (listener == null)
+            return current.merge(trees);
+
+        long start = System.nanoTime();
+        HierarchySnapshot merged = current.merge(trees);
+        long nanos = System.nanoTime() - start;
+
+        //Report the size of the whole hierarchy, the merged snapshot is not published to its partition yet
+        int vertices = 0, edges = 0;
+        for (Partition live : livePartitions()) {
+            AnnotationGraph graph = live == partition ? merged.graph : live.snapshot.graph;
+            vertices += graph.size();
+            edges += graph.edgeCount();
+        }
+        listener.merged(merged.index.size() - current.index.size(), nanos, vertices, edges);
+        return merged;
+    }
+
+    private AnnotationTrees getRelevantAnnotationClasses(Class<? extends Annotation> annotationClass) {
+        AnnotationTrees annotationBranches = new AnnotationTrees();
         if (isNotJavaAnnotation(annotationClass)) {
+            AspectIndex index = aspectIndex;
+            if (index.contains(annotationClass.getName())) {
+                try {
+                    indexedTree(index, annotationBranches, annotationClass);
+                    return annotationBranches;
+                } catch (ClassNotFoundException e) {
+                    //Stale index, fall back to scanning the annotations
+                    annotationBranches = new AnnotationTrees();
+                }
+            }
             recursivelyResolveTree(annotationBranches, annotationClass);
         }
         return annotationBranches;
     }
 
-    private void pruneUnrootedVertices() {
-        new HashSet<>(dependencies.vertexSet()) //We need to mask the original set to prevent ConcurrentModificationExceptions
-                .stream()
-                .filter(vertex -> pathfinder.getAllPaths(Aspect.class, vertex, true, null).size() == 0)
-                .forEach(dependencies::removeVertex);
+    private void indexedTree(AspectIndex index, AnnotationTrees trees,
+                                    Class<? extends Annotation> annotationClass) throws ClassNotFoundException {
+        Deque<Class<? extends Annotation>> queue = new ArrayDeque<>();
+        queue.add(annotationClass);
+        while (!queue.isEmpty()) {
+            Class<? extends Annotation> current = queue.poll();
+            if (current == Aspect.class)
+                continue;
+            Set<String> parents = index.parentsOf(current.getName());
+            if (parents == null) { //Not indexed (e.g. Aspect itself or a library type), so scan it instead
+                recursivelyResolveTree(trees, current);
+                continue;
+            }
+            for (String parentName : parents) {
+                Class<? extends Annotation> parent = loadAnnotation(parentName, current);
+                if (trees.addEdge(parent, current))
+                    queue.add(parent);
+            }
+        }
     }
 
-    private static <V, E extends SimpleEdge<V>> void moveTrees(Graph<V, E> from, Graph<V, E> to) {
-        from.edgeSet().forEach(edge -> safeAddEdge(to, edge.getSource(), edge.getSink()));
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Annotation> loadAnnotation(String name, Class<?> context) throws ClassNotFoundException {
+        if (Aspect.class.getName().equals(name))
+            return Aspect.class;
+        Class<?> loaded = Class.forName(name, false, context.getClassLoader());
+        if (!loaded.isAnnotation())
+            throw new ClassNotFoundException(name + " is not an annotation!");
+        return (Class<? extends Annotation>) loaded;
     }
 
-    private static void recursivelyResolveTree(Graph<Class<? extends Annotation>, SimpleEdge<Class<? extends Annotation>>> graph, Class<? extends Annotation> annotationClass) {
+    private void recursivelyResolveTree(AnnotationTrees trees, Class<? extends Annotation> annotationClass) {
         for (Annotation annotation : annotationClass.getAnnotations()) {
             Class<? extends Annotation> annotationCls = annotation.annotationType();
-            if (isNotJavaAnnotation(annotationCls) && !graph.containsEdge(annotationCls, annotationClass)) {
-                safeAddEdge(graph, annotationCls, annotationClass);
-                recursivelyResolveTree(graph, annotationCls);
-            }
+            if (isNotJavaAnnotation(annotationCls) && trees.addEdge(annotationCls, annotationClass))
+                recursivelyResolveTree(trees, annotationCls);
         }
     }
 
-    private static <V, E> void safeAddEdge(Graph<V, E> graph, V source, V sink) {
-        graph.addVertex(source);
-        graph.addVertex(sink);
-        graph.addEdge(source, sink);
+    private boolean isNotJavaAnnotation(Class<? extends Annotation> annotationClass) {
+        if (annotationClass.getPackage() == null) return false; //Ignore internal proxies
+        return !ignoredPackages.matches(annotationClass.getPackage().getName());
     }
 
-    private static boolean isNotJavaAnnotation(Class<? extends Annotation> annotationClass) {
-        if (annotationClass.getPackage() == null) return false; //Ignore internal proxies
-        return JAVA_PACKAGE_PREFIXES.stream().noneMatch(prefix -> annotationClass.getPackage().getName().startsWith(prefix));
+    /**
+     * The resolved hierarchy of the annotation types defined by one class loader. Every annotation type strongly
+     * references its partition while the resolver only weakly references partitions other than the shared one, so a
+     * partition is dropped along with its class loader (e.g. when a web app is redeployed).
+     */
+    private static final class Partition {
+
+        private final Object writeLock = new Object(); //Serializes merges, readers never take it
+        private volatile HierarchySnapshot snapshot = HierarchySnapshot.initial();
     }
 }
@@ -0,0 +1,250 @@
+package injectr.annotation.proxy;
+
+import injectr.util.ClassDefiner;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Generates one immutable value class per (annotation type, cast type) pair. Every attribute of the flattened types is
+ * resolved once per cast and stored in a final field, so reading an attribute is a field load (array values are
+ * cloned, as required by {@link Annotation}). Equality, hash code and string form follow the original annotation, which
+ * supplies all of its own attributes.
+ */
+final class AnnotationMaterializer {
+
+    private static final String ANNOTATION = Type.getInternalName(Annotation.class);
+    private static final String ANNOTATION_DESCRIPTOR = Type.getDescriptor(Annotation.class);
+    private static final String CONSTRUCTOR_DESCRIPTOR = "(" + ANNOTATION_DESCRIPTOR + "[Ljava/lang/Object;)V";
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    private AnnotationMaterializer() {}
+
+    /**
+     * Generates the value class for the provided annotation's type.
+     *
+     * @return The generated implementation, or null if the types involved cannot be implemented by a generated class.
+     */
+    static MaterializedCast generate(AnnotationProxy planner, Annotation annotation,
+                                     Collection<Class<? extends Annotation>> flattenedTypes) {
+        Class<? extends Annotation> annotationType = annotation.annotationType();
+
+        Map<String, Method> members = new LinkedHashMap<>();
+        for (Class<? extends Annotation> type : flattenedTypes) {
+            for (Method method : type.getMethods()) {
+                if (Modifier.isAbstract(method.getModifiers()) && method.getParameterCount() == 0
+                        && method.getDeclaringClass() != Annotation.class)
+                    members.putIfAbsent(AttributeSignatures.key(method), method);
+            }
+        }
+
+        //Attributes supplied by meta-annotations are the same for every instance, so only read them once
+        List<Method> ownAttributes = new ArrayList<>();
+        Object[] template = new Object[members.size()];
+        int[] ownSlots = new int[members.size()];
+        int index = 0;
+        for (Method member : members.values()) {
+            AttributeSource source = planner.locate(member);
+            if (source.instance == annotation) {
+                ownSlots[ownAttributes.size()] = index;
+                source.method.setAccessible(true);
+                ownAttributes.add(source.method);
+            } else {
+                template[index] = read(source.method, source.instance);
+            }
+            index++;
+        }
+
+        Set<Class<?>> referenced = new LinkedHashSet<>(flattenedTypes);
+        for (Method member : members.values()) {
+            Class<?> returnType = member.getReturnType();
+            while (returnType.isArray())
+                returnType = returnType.getComponentType();
+            if (!returnType.isPrimitive())
+                referenced.add(returnType);
+        }
+        Class<?> neighbor = AnnotationCastGenerator.findNeighbor(annotationType, referenced);
+        if (neighbor == null)
+            return null;
+
+        String name = neighbor.getName() + "$$InjectrValue$" + classCounter.incrementAndGet();
+        byte[] bytecode = writeClass(name.replace('.', '/'), flattenedTypes, members.values());
+        try {
+            Class<?> implementation = ClassDefiner.defineHidden(neighbor, bytecode); //Unloaded with the resolver's plans
+            if (implementation == null) //Before Java 15
+                implementation = ClassDefiner.defineNeighbor(neighbor, name, bytecode);
+            Constructor<?> constructor = implementation.getConstructor(Annotation.class, Object[].class);
+            return new MaterializedCast(constructor, template, ownAttributes.toArray(new Method[0]),
+                    Arrays.copyOf(ownSlots, ownAttributes.size()));
+        } catch (LinkageError | ReflectiveOperationException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static Object read(Method method, Annotation instance) {
+        try {
+            method.setAccessible(true);
+            return method.invoke(instance);
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] writeClass(String internalName, Collection<Class<? extends Annotation>> flattenedTypes,
+                                     Collection<Method> members) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        String[] interfaces = flattenedTypes.stream().map(Type::getInternalName).toArray(String[]::new);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, internalName, null,
+                "java/lang/Object", interfaces);
+
+        writer.visitField(ACC_PRIVATE | ACC_FINAL, "original", ANNOTATION_DESCRIPTOR, null, null).visitEnd();
+        writer.visitField(ACC_PRIVATE | ACC_FINAL, "annotationType", "Ljava/lang/Class;", null, null).visitEnd();
+        writer.visitField(ACC_PRIVATE | ACC_FINAL, "hashCode", "I", null, null).visitEnd();
+        int slot = 0;
+        for (Method member : members)
+            writer.visitField(ACC_PRIVATE | ACC_FINAL, "value" + slot++, Type.getDescriptor(member.getReturnType()),
+                    null, null).visitEnd();
+
+        MethodVisitor constructor = writer.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESCRIPTOR, null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitVarInsn(ALOAD, 1);
+        constructor.visitFieldInsn(PUTFIELD, internalName, "original", ANNOTATION_DESCRIPTOR);
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitVarInsn(ALOAD, 1);
+        constructor.visitMethodInsn(INVOKEINTERFACE, ANNOTATION, "annotationType", "()Ljava/lang/Class;", true);
+        constructor.visitFieldInsn(PUTFIELD, internalName, "annotationType", "Ljava/lang/Class;");
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitVarInsn(ALOAD, 1);
+        constructor.visitMethodInsn(INVOKEINTERFACE, ANNOTATION, "hashCode", "()I", true);
+        constructor.visitFieldInsn(PUTFIELD, internalName, "hashCode", "I");
+        slot = 0;
+        for (Method member : members) {
+            Type type = Type.getType(member.getReturnType());
+            constructor.visitVarInsn(ALOAD, 0);
+            constructor.visitVarInsn(ALOAD, 2);
+            constructor.visitLdcInsn(slot);
+            constructor.visitInsn(AALOAD);
+            unbox(constructor, type);
+            constructor.visitFieldInsn(PUTFIELD, internalName, "value" + slot++, type.getDescriptor());
+        }
+        constructor.visitInsn(RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        slot = 0;
+        for (Method member : members) {
+            Type type = Type.getType(member.getReturnType());
+            MethodVisitor accessor = writer.visitMethod(ACC_PUBLIC | ACC_FINAL, member.getName(),
+                    Type.getMethodDescriptor(member), null, null);
+            accessor.visitCode();
+            accessor.visitVarInsn(ALOAD, 0);
+            accessor.visitFieldInsn(GETFIELD, internalName, "value" + slot++, type.getDescriptor());
+            if (type.getSort() == Type.ARRAY) { //Callers must not be able to modify the stored value
+                accessor.visitMethodInsn(INVOKEVIRTUAL, type.getDescriptor(), "clone", "()Ljava/lang/Object;", false);
+                accessor.visitTypeInsn(CHECKCAST, type.getDescriptor());
+            }
+            accessor.visitInsn(type.getOpcode(IRETURN));
+            accessor.visitMaxs(0, 0);
+            accessor.visitEnd();
+        }
+
+        MethodVisitor annotationType = writer.visitMethod(ACC_PUBLIC | ACC_FINAL, "annotationType", "()Ljava/lang/Class;", null, null);
+        annotationType.visitCode();
+        annotationType.visitVarInsn(ALOAD, 0);
+        annotationType.visitFieldInsn(GETFIELD, internalName, "annotationType", "Ljava/lang/Class;");
+        annotationType.visitInsn(ARETURN);
+        annotationType.visitMaxs(0, 0);
+        annotationType.visitEnd();
+
+        MethodVisitor hashCode = writer.visitMethod(ACC_PUBLIC | ACC_FINAL, "hashCode", "()I", null, null);
+        hashCode.visitCode();
+        hashCode.visitVarInsn(ALOAD, 0);
+        hashCode.visitFieldInsn(GETFIELD, internalName, "hashCode", "I");
+        hashCode.visitInsn(IRETURN);
+        hashCode.visitMaxs(0, 0);
+        hashCode.visitEnd();
+
+        //The original annotation compares its attributes with the other annotation's, which may be this instance
+        MethodVisitor equals = writer.visitMethod(ACC_PUBLIC | ACC_FINAL, "equals", "(Ljava/lang/Object;)Z", null, null);
+        equals.visitCode();
+        equals.visitVarInsn(ALOAD, 0);
+        equals.visitFieldInsn(GETFIELD, internalName, "original", ANNOTATION_DESCRIPTOR);
+        equals.visitVarInsn(ALOAD, 1);
+        equals.visitMethodInsn(INVOKEINTERFACE, ANNOTATION, "equals", "(Ljava/lang/Object;)Z", true);
+        equals.visitInsn(IRETURN);
+        equals.visitMaxs(0, 0);
+        equals.visitEnd();
+
+        MethodVisitor toString = writer.visitMethod(ACC_PUBLIC | ACC_FINAL, "toString", "()Ljava/lang/String;", null, null);
+        toString.visitCode();
+        toString.visitVarInsn(ALOAD, 0);
+        toString.visitFieldInsn(GETFIELD, internalName, "original", ANNOTATION_DESCRIPTOR);
+        toString.visitMethodInsn(INVOKEINTERFACE, ANNOTATION, "toString", "()Ljava/lang/String;", true);
+        toString.visitInsn(ARETURN);
+        toString.visitMaxs(0, 0);
+        toString.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static void unbox(MethodVisitor method, Type type) {
+        String box;
+        switch (type.getSort()) {
+            case Type.BOOLEAN: box = "java/lang/Boolean"; break;
+            case Type.BYTE: box = "java/lang/Byte"; break;
+            case Type.SHORT: box = "java/lang/Short"; break;
+            case Type.CHAR: box = "java/lang/Character"; break;
+            case Type.INT: box = "java/lang/Integer"; break;
+            case Type.LONG: box = "java/lang/Long"; break;
+            case Type.FLOAT: box = "java/lang/Float"; break;
+            case Type.DOUBLE: box = "java/lang/Double"; break;
+            default:
+                method.visitTypeInsn(CHECKCAST, type.getSort() == Type.ARRAY ? type.getDescriptor() : type.getInternalName());
+                return;
+        }
+        method.visitTypeInsn(CHECKCAST, box);
+        method.visitMethodInsn(INVOKEVIRTUAL, box, type.getClassName() + "Value", "()" + type.getDescriptor(), false);
+    }
+
+    static final class MaterializedCast {
+
+        private final Constructor<?> constructor;
+        private final Object[] template; //Values supplied by meta-annotations, own attributes are left null
+        private final Method[] ownAttributes;
+        private final int[] ownSlots;
+
+        MaterializedCast(Constructor<?> constructor, Object[] template, Method[] ownAttributes, int[] ownSlots) {
+            this.constructor = constructor;
+            this.template = template;
+            this.ownAttributes = ownAttributes;
+            this.ownSlots = ownSlots;
+        }
+
+        Object newInstance(Annotation annotation) {
+            Object[] values = template.clone();
+            for (int i = 0; i < ownAttributes.length; i++)
+                values[ownSlots[i]] = read(ownAttributes[i], annotation);
+            try {
+                return constructor.newInstance(annotation, values);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
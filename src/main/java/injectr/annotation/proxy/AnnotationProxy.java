@@ -1,96 +1,122 @@
 package injectr.annotation.proxy;
 
 import injectr.util.BreadthFirstIterator;
-import injectr.util.SimpleEdgeFactory.SimpleEdge;
-import org.jgrapht.GraphPath;
-import org.jgrapht.alg.shortestpath.DijkstraShortestPath;
 
 import java.lang.annotation.Annotation;
 import java.lang.invoke.MethodHandle;
-import java.lang.invoke.MethodHandles;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.util.*;
 
 public class AnnotationProxy implements InvocationHandler {
 
-    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
-
-    private final AnnotationInheritanceResolver resolver;
+    private final CastContext context; //Never the resolver, as proxies are cached in its ClassValues
     private final Annotation annotation;
     private final Class<? extends Annotation> toClass; //Allows for prioritization of delegation, potentially speeds up proxied calls
     private final List<Set<Class<? extends Annotation>>> inherited;
-    private final Map<Method, MethodHandle> cachedHandles = new HashMap<>();
+    private final DispatchTable dispatchTable; //Shared between all proxies of the same shape, null while planning
 
     public AnnotationProxy(AnnotationInheritanceResolver resolver, Annotation annotation,
                            Class<? extends Annotation> toClass, List<Set<Class<? extends Annotation>>> inherited) {
-        this.resolver = resolver;
+        this(resolver.planFor(annotation, toClass), annotation, inherited);
+    }
+
+    private AnnotationProxy(CastPlan plan, Annotation annotation, List<Set<Class<? extends Annotation>>> inherited) {
+        this(plan.context, annotation, plan.toClass, inherited, plan.dispatchTable);
+    }
+
+    AnnotationProxy(CastContext context, Annotation annotation, Class<? extends Annotation> toClass,
+                    List<Set<Class<? extends Annotation>>> inherited, DispatchTable dispatchTable) {
+        this.context = context;
         this.annotation = annotation;
         this.toClass = toClass;
         this.inherited = inherited;
+        this.dispatchTable = dispatchTable;
     }
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        MethodHandle handle = cachedHandles.computeIfAbsent(method, (m) -> {
-            //First search the original annotation
-            for (Method annotationMethod : annotation.annotationType().getDeclaredMethods()) {
-                if (areMethodsSimilar(method, annotationMethod))
-                    return handleFor(annotationMethod, annotation);
-            }
-
-            //Next check the casted class
-            for (Method annotationMethod : toClass.getDeclaredMethods()) {
-                if (areMethodsSimilar(method, annotationMethod))
-                    return handleFor(annotationMethod, climbToFind(toClass));
-            }
-
-            //Next check all parent types, inefficient on first run :(
-            for (Class<? extends Annotation> toCheck : new BreadthFirstIterator<>(inherited)) {
-                for (Method annotationMethod : toCheck.getDeclaredMethods()) {
-                    if (areMethodsSimilar(method, annotationMethod))
-                        return handleFor(annotationMethod, climbToFind(toCheck));
-                }
-            }
-
-            throw new NoSuchElementException(m.toGenericString());
-        });
-        return handle.invokeWithArguments(args);
+        MethodHandle handle = dispatchTable == null ? null : dispatchTable.get(method);
+        ResolverListener listener = context.listeners.listener;
+        if (handle == null) //Not a member of this shape's types, so resolve it directly
+            handle = DispatchTable.dispatcherFor(locate(method), annotation);
+        else if (listener != null)
+            listener.attributeDispatched(annotation.annotationType());
+        return (Object) handle.invokeExact(annotation, args);
     }
 
-    Annotation climbToFind(Class<? extends Annotation> target) {
-        GraphPath<Class<? extends Annotation>, SimpleEdge<Class<? extends Annotation>>> path =
-                DijkstraShortestPath.findPathBetween(resolver.dependencies, target, annotation.annotationType());
-        SimpleEdge<Class<? extends Annotation>> firstEdge = path.getEdgeList().get(0); //First will contain the class which has the annotation value we are looking for
-        return firstEdge.getSink().getAnnotation(target);
-    }
+    AttributeSource locate(Method method) {
+        //Object and Annotation members (equals, hashCode, toString, annotationType) are delegated to the original
+        if (method.getDeclaringClass() == Object.class || method.getDeclaringClass() == Annotation.class)
+            return new AttributeSource(method, annotation);
+
+        ResolverListener listener = context.listeners.listener;
+        if (listener != null)
+            listener.attributeLocated(annotation.annotationType(), method.getName());
 
-    static MethodHandle handleFor(Method method, Object toBind) {
-        method.setAccessible(true);
-        try {
-            return lookup.unreflect(method).bindTo(toBind);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
+        String key = AttributeSignatures.key(method);
+        if (context.indexed != null) {
+            AttributeSource source = locateIndexed(key, context.indexed);
+            if (source != null)
+                return source;
         }
+
+        //First search the original annotation
+        Method found = AttributeSignatures.find(annotation.annotationType(), key);
+        if (found != null)
+            return new AttributeSource(found, annotation);
+
+        //Next check the casted class
+        found = AttributeSignatures.find(toClass, key);
+        if (found != null)
+            return new AttributeSource(found, climbToFind(toClass));
+
+        //Next check all parent types
+        for (Class<? extends Annotation> toCheck : new BreadthFirstIterator<>(inherited)) {
+            found = AttributeSignatures.find(toCheck, key);
+            if (found != null)
+                return new AttributeSource(found, climbToFind(toCheck));
+        }
+
+        throw new NoSuchElementException(method.toGenericString());
     }
 
-    static boolean areMethodsSimilar(Method method1, Method method2) {
-        if (method1.equals(method2))
-            return true;
-
-        //Logic is loosely based on Method#equals, Executable#equalParamTypes, andParameter#equals
-        if (method1.getName().equals(method2.getName()) && method1.getReturnType().equals(method2.getReturnType())) {
-            if (method1.getParameterCount() == method2.getParameterCount()) {
-                for (int i = 0; i < method1.getParameterCount(); i++) {
-                    Parameter[] method1Params = method1.getParameters();
-                    Parameter[] method2Params = method2.getParameters();
-                    if (!method1Params[i].getType().equals(method2Params[i].getType()))
-                        return false;
-                }
-                return true;
-            }
+    /**
+     * Same search as {@link #locate(Method)} but using the attribute owners precomputed by an
+     * {@link injectr.annotation.index.AspectIndex}, so no declared methods need to be scanned.
+     *
+     * @return The source, or null if it could not be determined from the index.
+     */
+    private AttributeSource locateIndexed(String key, Map<String, String> indexed) {
+        String owner = indexed.get(key);
+        if (owner == null)
+            return null;
+
+        Class<? extends Annotation> annotationType = annotation.annotationType();
+        if (owner.equals(annotationType.getName()))
+            return source(annotationType, key, annotation);
+
+        Map<String, String> castIndexed = context.castIndexed;
+        if (castIndexed == null)
+            return null;
+        if (toClass.getName().equals(castIndexed.get(key)))
+            return source(toClass, key, null);
+
+        for (Class<? extends Annotation> toCheck : new BreadthFirstIterator<>(inherited)) {
+            if (owner.equals(toCheck.getName()))
+                return source(toCheck, key, null);
         }
-        return false;
+        return null;
+    }
+
+    private AttributeSource source(Class<? extends Annotation> owner, String key, Annotation instance) {
+        Method method = AttributeSignatures.find(owner, key);
+        if (method == null) //Stale index
+            return null;
+        return new AttributeSource(method, instance != null ? instance : climbToFind(owner));
+    }
+
+    Annotation climbToFind(Class<? extends Annotation> target) {
+        return context.provenance.get(target);
     }
 }
@@ -0,0 +1,43 @@
+package injectr.annotation.proxy;
+
+import java.lang.annotation.Annotation;
+import java.util.*;
+
+/**
+ * Mutable meta-annotation trees which are collected while discovering annotation types, before being merged into an
+ * {@link AnnotationGraph}. Edges go from a meta-annotation to the annotation type it annotates.
+ */
+final class AnnotationTrees {
+
+    private final Set<Class<? extends Annotation>> vertices = new LinkedHashSet<>();
+    private final Map<Class<? extends Annotation>, Set<Class<? extends Annotation>>> parents = new HashMap<>();
+    private final Map<Class<? extends Annotation>, Set<Class<? extends Annotation>>> children = new HashMap<>();
+
+    /**
+     * @return True if the edge was not already part of the trees.
+     */
+    boolean addEdge(Class<? extends Annotation> parent, Class<? extends Annotation> child) {
+        if (!parents.computeIfAbsent(child, c -> new LinkedHashSet<>()).add(parent))
+            return false;
+        children.computeIfAbsent(parent, p -> new LinkedHashSet<>()).add(child);
+        vertices.add(parent);
+        vertices.add(child);
+        return true;
+    }
+
+    void addAll(AnnotationTrees trees) {
+        trees.parents.forEach((child, childParents) -> childParents.forEach(parent -> addEdge(parent, child)));
+    }
+
+    Set<Class<? extends Annotation>> vertices() {
+        return vertices;
+    }
+
+    Set<Class<? extends Annotation>> parentsOf(Class<? extends Annotation> annotationClass) {
+        return parents.getOrDefault(annotationClass, Collections.emptySet());
+    }
+
+    Set<Class<? extends Annotation>> childrenOf(Class<? extends Annotation> annotationClass) {
+        return children.getOrDefault(annotationClass, Collections.emptySet());
+    }
+}
@@ -0,0 +1,47 @@
+package injectr.annotation.proxy;
+
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the declared methods of every annotation type by signature (name followed by erased method descriptor, e.g.
+ * {@code value()Ljava/lang/String;}), computed once per type so looking up an attribute is a hash lookup instead of
+ * a scan of {@link Class#getDeclaredMethods()}.
+ */
+final class AttributeSignatures {
+
+    private static final ClassValue<Map<String, Method>> signatures = new ClassValue<Map<String, Method>>() {
+        @Override
+        protected Map<String, Method> computeValue(Class<?> type) {
+            Map<String, Method> methods = new HashMap<>();
+            for (Method method : type.getDeclaredMethods())
+                methods.put(key(method), method);
+            return Collections.unmodifiableMap(methods);
+        }
+    };
+
+    private AttributeSignatures() {}
+
+    static String key(Method method) {
+        return method.getName() + Type.getMethodDescriptor(method);
+    }
+
+    /**
+     * @return The signatures of every method declared by the type.
+     */
+    static Set<String> keys(Class<?> type) {
+        return signatures.get(type).keySet();
+    }
+
+    /**
+     * @return The method declared by the type with the provided signature, or null if there is none.
+     */
+    static Method find(Class<?> type, String key) {
+        return signatures.get(type).get(key);
+    }
+}
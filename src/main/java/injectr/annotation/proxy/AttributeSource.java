@@ -0,0 +1,19 @@
+package injectr.annotation.proxy;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+/**
+ * The resolved origin of a cast attribute: the declared method which provides the value and the annotation instance
+ * it should be read from.
+ */
+final class AttributeSource {
+
+    final Method method;
+    final Annotation instance;
+
+    AttributeSource(Method method, Annotation instance) {
+        this.method = method;
+        this.instance = instance;
+    }
+}
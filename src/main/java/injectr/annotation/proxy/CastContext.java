@@ -0,0 +1,24 @@
+package injectr.annotation.proxy;
+
+import java.lang.annotation.Annotation;
+import java.util.Map;
+
+/**
+ * The resolver state needed to locate the attributes of one (annotation type, cast type) pair, captured when its
+ * {@link CastPlan} is created so neither the plan nor its casts reference the resolver.
+ */
+final class CastContext {
+
+    final ListenerHolder listeners;
+    final Map<String, String> indexed; //Indexed attribute owners of the annotation type, null if not indexed
+    final Map<String, String> castIndexed; //Indexed attribute owners of the cast type, null if not indexed
+    final Map<Class<? extends Annotation>, Annotation> provenance;
+
+    CastContext(ListenerHolder listeners, Map<String, String> indexed, Map<String, String> castIndexed,
+                Map<Class<? extends Annotation>, Annotation> provenance) {
+        this.listeners = listeners;
+        this.indexed = indexed;
+        this.castIndexed = castIndexed;
+        this.provenance = provenance;
+    }
+}
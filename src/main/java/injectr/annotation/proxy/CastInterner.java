@@ -0,0 +1,244 @@
+package injectr.annotation.proxy;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.ref.Reference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Interns casts by source annotation instance (compared by identity) and cast type, so casting the same annotation to
+ * the same type again returns the existing cast while it is still reachable. The source annotations, the cast types and
+ * the casts are all held weakly, so interned entries never pin a class loader. Once the maximum size is exceeded, the
+ * least recently used entry of the segment being written to is evicted (or of the next segments, if it only holds the
+ * new entry).
+ *
+ * @see AnnotationInheritanceResolver#setCastInterner(CastInterner)
+ */
+public final class CastInterner {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int maximumSize;
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize The maximum number of interned casts.
+     */
+    public CastInterner(int maximumSize) {
+        if (maximumSize < 1)
+            throw new IllegalArgumentException("The maximum size must be positive!");
+        this.maximumSize = maximumSize;
+        for (int i = 0; i < SEGMENTS; i++)
+            segments[i] = new Segment();
+    }
+
+    Object get(Annotation annotation, Class<? extends Annotation> toClass) {
+        int hash = hash(annotation, toClass);
+        Object cast = segments[segmentIndex(hash)].get(new LookupKey(annotation, toClass, hash));
+        (cast != null ? hits : misses).increment();
+        return cast;
+    }
+
+    void put(Annotation annotation, Class<? extends Annotation> toClass, Object cast) {
+        int hash = hash(annotation, toClass);
+        int index = segmentIndex(hash);
+        Object key = segments[index].put(annotation, toClass, hash, cast);
+
+        //Evict outside of the segment's lock, so writers to different segments never wait on each other
+        for (int i = 0; i < SEGMENTS && size.get() > maximumSize; ) {
+            if (!segments[(index + i) & (SEGMENTS - 1)].evictEldest(key))
+                i++;
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of entries dropped to stay within the maximum size, entries which were collected are not
+     * counted.
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The fraction of lookups which found an interned cast, or 0 if there were none.
+     */
+    public double hitRate() {
+        long hitCount = hits(), total = hitCount + misses();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return The number of entries, including entries whose annotation or cast was collected but not yet expunged.
+     */
+    public int size() {
+        for (Segment segment : segments)
+            segment.expunge();
+        return size.get();
+    }
+
+    public void clear() {
+        for (Segment segment : segments)
+            segment.clear();
+    }
+
+    private static int hash(Annotation annotation, Class<? extends Annotation> toClass) {
+        return System.identityHashCode(annotation) * 31 + toClass.hashCode();
+    }
+
+    private static int segmentIndex(int hash) {
+        return (hash ^ (hash >>> 16)) & (SEGMENTS - 1);
+    }
+
+    private final class Segment {
+
+        private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+        private final Map<Object, WeakReference<Object>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        synchronized Object get(LookupKey key) {
+            expunge();
+            WeakReference<Object> cast = entries.get(key);
+            return cast == null ? null : cast.get();
+        }
+
+        /**
+         * @return The key of the entry.
+         */
+        synchronized Object put(Annotation annotation, Class<? extends Annotation> toClass, int hash, Object cast) {
+            expunge();
+            WeakKey key = new WeakKey(annotation, toClass, hash, collected);
+            if (entries.put(key, new WeakReference<>(cast)) == null)
+                size.incrementAndGet();
+            return key;
+        }
+
+        /**
+         * Evicts the least recently used entry, unless it is the provided one.
+         *
+         * @return Whether an entry was evicted.
+         */
+        synchronized boolean evictEldest(Object keep) {
+            Iterator<Object> keys = entries.keySet().iterator();
+            if (!keys.hasNext())
+                return false;
+            Object eldest = keys.next();
+            if (eldest.equals(keep))
+                return false;
+            keys.remove();
+            size.decrementAndGet();
+            evictions.increment();
+            return true;
+        }
+
+        synchronized void clear() {
+            size.addAndGet(-entries.size());
+            entries.clear();
+        }
+
+        synchronized void expunge() {
+            Reference<?> reference;
+            while ((reference = collected.poll()) != null) {
+                Object key = reference instanceof ClassReference ? ((ClassReference) reference).key : reference;
+                if (entries.remove(key) != null)
+                    size.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Weakly referenced key stored in the map, once its annotation or cast type is collected it is only equal to
+     * itself.
+     */
+    private static final class WeakKey extends WeakReference<Annotation> {
+
+        final ClassReference toClass;
+        final int hash;
+
+        WeakKey(Annotation annotation, Class<? extends Annotation> toClass, int hash, ReferenceQueue<Object> queue) {
+            super(annotation, queue);
+            this.toClass = new ClassReference(toClass, this, queue);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o instanceof WeakKey) {
+                Annotation annotation = get();
+                WeakKey key = (WeakKey) o;
+                Class<?> type = toClass.get();
+                return annotation != null && type != null && key.get() == annotation && key.toClass.get() == type;
+            }
+            if (o instanceof LookupKey) {
+                LookupKey key = (LookupKey) o;
+                return key.annotation == get() && key.toClass == toClass.get();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Weak reference to the cast type of a key, which expunges the key once the type is collected.
+     */
+    private static final class ClassReference extends WeakReference<Class<?>> {
+
+        final WeakKey key;
+
+        ClassReference(Class<?> referent, WeakKey key, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.key = key;
+        }
+    }
+
+    /**
+     * Strongly referenced key only used for lookups.
+     */
+    private static final class LookupKey {
+
+        final Annotation annotation;
+        final Class<? extends Annotation> toClass;
+        final int hash;
+
+        LookupKey(Annotation annotation, Class<? extends Annotation> toClass, int hash) {
+            this.annotation = annotation;
+            this.toClass = toClass;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof WeakKey) {
+                WeakKey key = (WeakKey) o;
+                return key.get() == annotation && key.toClass.get() == toClass;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package injectr.annotation.proxy;
+
+/**
+ * The strategies which {@link AnnotationInheritanceResolver#cast(java.lang.annotation.Annotation, Class)} can use to
+ * build cast annotations.
+ */
+public enum CastMode {
+
+    /**
+     * Casts are backed by a {@link java.lang.reflect.Proxy} dispatching to an {@link AnnotationProxy}.
+     */
+    PROXY,
+    /**
+     * Casts are backed by a class generated once per (annotation type, cast type) pair whose accessors directly read
+     * the resolved annotation instances. Falls back to {@link #PROXY} when the types involved cannot be implemented
+     * by a generated class (e.g. non-public annotations from different packages).
+     */
+    GENERATED,
+    /**
+     * Casts are immutable values of a class generated once per (annotation type, cast type) pair, every attribute is
+     * resolved when casting and stored in a final field. This suits annotations which are read far more often than
+     * they are cast. Falls back to {@link #PROXY} under the same conditions as {@link #GENERATED}.
+     */
+    MATERIALIZED
+}
@@ -0,0 +1,80 @@
+package injectr.annotation.proxy;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ * Everything needed to cast annotations of one type to another, computed once per (annotation type, cast type) pair.
+ * Plans are immutable so casting with a cached plan only costs the allocation of the cast annotation itself.
+ */
+final class CastPlan {
+
+    final Class<? extends Annotation> annotationType;
+    final Class<? extends Annotation> toClass;
+    final List<Set<Class<? extends Annotation>>> layers; //Prioritized dependencies, Aspect first
+    final Class<?>[] interfaces;
+    final DispatchTable dispatchTable;
+    final CastContext context;
+    private final Constructor<?> proxyConstructor;
+    private final AnnotationCastGenerator.GeneratedCast generated;
+    private final AnnotationMaterializer.MaterializedCast materialized;
+
+    private CastPlan(CastContext context, Annotation annotation, Class<? extends Annotation> toClass,
+                     List<Set<Class<? extends Annotation>>> layers, CastMode castMode) {
+        this.context = context;
+        this.annotationType = annotation.annotationType();
+        this.toClass = toClass;
+        this.layers = layers;
+
+        Set<Class<? extends Annotation>> flattenedTypes = new LinkedHashSet<>();
+        flattenedTypes.add(annotationType);
+        layers.forEach(flattenedTypes::addAll);
+        this.interfaces = flattenedTypes.toArray(new Class<?>[0]);
+
+        AnnotationProxy planner = new AnnotationProxy(context, annotation, toClass, layers, null);
+        this.generated = castMode == CastMode.GENERATED
+                ? AnnotationCastGenerator.generate(planner, annotation, flattenedTypes) : null;
+        this.materialized = castMode == CastMode.MATERIALIZED
+                ? AnnotationMaterializer.generate(planner, annotation, flattenedTypes) : null;
+        if (generated != null || materialized != null) {
+            this.dispatchTable = null;
+            this.proxyConstructor = null;
+        } else {
+            this.dispatchTable = DispatchTable.build(planner, annotation, layers);
+            try {
+                this.proxyConstructor = Proxy.getProxyClass(annotationType.getClassLoader(), interfaces)
+                        .getConstructor(InvocationHandler.class);
+                proxyConstructor.setAccessible(true); //Proxies of non-public interfaces are not public
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    static CastPlan create(CastContext context, Annotation annotation,
+                           Class<? extends Annotation> toClass, List<Set<Class<? extends Annotation>>> layers,
+                           CastMode castMode) {
+        List<Set<Class<? extends Annotation>>> immutableLayers = new ArrayList<>(layers.size());
+        layers.forEach(layer -> immutableLayers.add(Collections.unmodifiableSet(new LinkedHashSet<>(layer))));
+        return new CastPlan(context, annotation, toClass, Collections.unmodifiableList(immutableLayers), castMode);
+    }
+
+    Object cast(Annotation annotation) {
+        ResolverListener listener = context.listeners.listener;
+        if (listener != null)
+            listener.castInstanceCreated(annotationType, toClass);
+        if (generated != null)
+            return generated.newInstance(annotation);
+        if (materialized != null)
+            return materialized.newInstance(annotation);
+
+        try {
+            return proxyConstructor.newInstance(new AnnotationProxy(context, annotation, toClass, layers, dispatchTable));
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package injectr.annotation.proxy;
+
+import injectr.util.BreadthFirstIterator;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * An immutable table of dispatchers for every member of a cast shape (annotation type, cast type). Tables are built
+ * once per shape and shared by every {@link AnnotationProxy} of that shape, so lookups are plain reads.
+ *
+ * Each dispatcher has the type {@code (Annotation original, Object[] args)Object}, members supplied by the original
+ * annotation are invoked on the passed instance while inherited members are bound to their meta-annotation.
+ */
+final class DispatchTable {
+
+    static final MethodType DISPATCHER_TYPE = MethodType.methodType(Object.class, Annotation.class, Object[].class);
+
+    private static final Set<String> PROXIED_OBJECT_METHODS = new HashSet<>(Arrays.asList("equals", "hashCode", "toString"));
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private final Map<Method, MethodHandle> dispatchers;
+
+    private DispatchTable(Map<Method, MethodHandle> dispatchers) {
+        this.dispatchers = dispatchers;
+    }
+
+    static DispatchTable build(AnnotationProxy planner, Annotation annotation,
+                               List<Set<Class<? extends Annotation>>> inherited) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        types.add(annotation.annotationType());
+        new BreadthFirstIterator<>(inherited).forEachRemaining(types::add);
+
+        Map<Method, MethodHandle> dispatchers = new HashMap<>();
+        for (Method method : Object.class.getMethods()) {
+            if (PROXIED_OBJECT_METHODS.contains(method.getName()))
+                dispatchers.put(method, dispatcherFor(planner.locate(method), annotation));
+        }
+        for (Class<?> type : types) {
+            for (Method method : type.getMethods())
+                dispatchers.computeIfAbsent(method, m -> dispatcherFor(planner.locate(m), annotation));
+        }
+        return new DispatchTable(dispatchers);
+    }
+
+    MethodHandle get(Method method) {
+        return dispatchers.get(method);
+    }
+
+    static MethodHandle dispatcherFor(AttributeSource source, Annotation original) {
+        Method method = source.method;
+        method.setAccessible(true);
+        try {
+            MethodHandle handle = lookup.unreflect(method);
+            if (source.instance == original)
+                handle = handle.asType(handle.type().changeParameterType(0, Annotation.class));
+            else
+                handle = MethodHandles.dropArguments(handle.bindTo(source.instance), 0, Annotation.class);
+            return handle.asSpreader(Object[].class, method.getParameterCount()).asType(DISPATCHER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package injectr.annotation.proxy;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The aspect annotations carried by a single annotated element along with their casts, which are computed once per
+ * target aspect. Instances are immutable apart from the lazily filled cast cache.
+ *
+ * Instances are cached in a {@link ClassValue} owned by the resolver, so neither they nor their cached casts may
+ * reference it: the resolver is only passed in for the duration of each call.
+ */
+final class ElementAspects {
+
+    final List<Annotation> aspects;
+    private final ConcurrentMap<Class<? extends Annotation>, List<? extends Annotation>> casts = new ConcurrentHashMap<>();
+
+    ElementAspects(AnnotationInheritanceResolver resolver, AnnotatedElement element) {
+        List<Annotation> annotations = new ArrayList<>();
+        for (Annotation annotation : element.getAnnotations())
+            annotations.add(annotation);
+        List<Class<? extends Annotation>> types = new ArrayList<>(annotations.size());
+        annotations.forEach(annotation -> types.add(annotation.annotationType()));
+        //Resolve every annotation type of the element with a single merge
+        resolver.resolveAll(types);
+
+        List<Annotation> found = new ArrayList<>();
+        for (Annotation annotation : annotations) {
+            if (resolver.isAspect(annotation.annotationType()))
+                found.add(annotation);
+        }
+        this.aspects = Collections.unmodifiableList(found);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T extends Annotation> List<T> castTo(AnnotationInheritanceResolver resolver, Class<T> aspect) {
+        List<? extends Annotation> cast = casts.get(aspect);
+        if (cast == null) {
+            cast = casts.computeIfAbsent(aspect, type -> {
+                List<T> matching = new ArrayList<>();
+                for (Annotation annotation : aspects) {
+                    if (annotation.annotationType() == aspect)
+                        matching.add((T) annotation);
+                    else if (resolver.isInstanceOf(annotation.annotationType(), aspect))
+                        matching.add(resolver.cast(annotation, aspect));
+                }
+                return Collections.unmodifiableList(matching);
+            });
+        }
+        return (List<T>) cast;
+    }
+}
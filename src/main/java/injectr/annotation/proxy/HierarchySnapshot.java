@@ -0,0 +1,166 @@
+package injectr.annotation.proxy;
+
+import injectr.annotation.Aspect;
+import injectr.util.SimpleEdgeFactory.SimpleEdge;
+
+import java.lang.annotation.Annotation;
+import java.util.*;
+
+/**
+ * An immutable view of the resolved annotation hierarchy. Snapshots are never modified after construction, merging new
+ * annotation trees produces a new snapshot (copy-on-write) so any number of readers can query one without locking.
+ */
+final class HierarchySnapshot {
+
+    private static final int ROOT = 0; //Aspect is always the first vertex
+
+    final AnnotationGraph graph;
+    final ReachabilityIndex index;
+
+    private HierarchySnapshot(AnnotationGraph graph, ReachabilityIndex index) {
+        this.graph = graph;
+        this.index = index;
+    }
+
+    static HierarchySnapshot initial() {
+        AnnotationGraph graph = AnnotationGraph.of(Aspect.class);
+        return new HierarchySnapshot(graph, new ReachabilityIndex(graph));
+    }
+
+    /**
+     * Merges newly discovered annotation trees into a copy of this snapshot, dropping everything not rooted at
+     * {@link Aspect}. Only the merged trees are checked for a root: vertices of this snapshot are already known to be
+     * rooted, so a single pass from them over the trees' edges finds every new rooted vertex.
+     *
+     * @return The new snapshot, or this snapshot if nothing new was rooted.
+     */
+    HierarchySnapshot merge(AnnotationTrees trees) {
+        Set<Class<? extends Annotation>> rooted = new LinkedHashSet<>();
+        Deque<Class<? extends Annotation>> queue = new ArrayDeque<>();
+        for (Class<? extends Annotation> vertex : trees.vertices()) {
+            if (contains(vertex))
+                queue.add(vertex);
+        }
+        while (!queue.isEmpty()) {
+            for (Class<? extends Annotation> child : trees.childrenOf(queue.poll())) {
+                if (!contains(child) && rooted.add(child))
+                    queue.add(child);
+            }
+        }
+        if (rooted.isEmpty())
+            return this;
+
+        AnnotationGraph merged = graph.extend(rooted, trees);
+        return new HierarchySnapshot(merged, index.extend(merged));
+    }
+
+    boolean contains(Class<? extends Annotation> annotationClass) {
+        return index.contains(annotationClass);
+    }
+
+    Set<SimpleEdge<Class<? extends Annotation>>> edgesTo(Class<? extends Annotation> annotationClass) {
+        int target = graph.id(annotationClass);
+        if (target < 0)
+            return Collections.emptySet();
+
+        //Every edge between the ancestors (and into the annotation) lies on a path from Aspect
+        BitSet ancestors = index.ancestorIds(target);
+        Set<SimpleEdge<Class<? extends Annotation>>> edges = new HashSet<>();
+        for (int ancestor = ancestors.nextSetBit(0); ancestor >= 0; ancestor = ancestors.nextSetBit(ancestor + 1)) {
+            for (int i = graph.childOffsets[ancestor]; i < graph.childOffsets[ancestor + 1]; i++) {
+                int child = graph.children[i];
+                if (child == target || ancestors.get(child))
+                    edges.add(new SimpleEdge<>(graph.vertex(ancestor), graph.vertex(child)));
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Groups the annotation and its ancestors by their distances from {@link Aspect} along every path leading to the
+     * annotation, so {@code layers.get(0)} only contains {@link Aspect}.
+     */
+    List<Set<Class<? extends Annotation>>> prioritize(Class<? extends Annotation> annotationClass) {
+        int target = graph.id(annotationClass);
+        if (target < 0)
+            return Collections.emptyList();
+        BitSet members = (BitSet) index.ancestorIds(target).clone();
+        members.set(target);
+
+        //Propagate path lengths from Aspect in topological order, in a DAG every such path extends to the annotation
+        BitSet[] depths = new BitSet[graph.size()];
+        int[] pendingParents = new int[graph.size()];
+        for (int member = members.nextSetBit(0); member >= 0; member = members.nextSetBit(member + 1)) {
+            depths[member] = new BitSet();
+            for (int i = graph.parentOffsets[member]; i < graph.parentOffsets[member + 1]; i++) {
+                if (members.get(graph.parents[i]))
+                    pendingParents[member]++;
+            }
+        }
+        depths[ROOT].set(0);
+        int[] queue = new int[members.cardinality()];
+        int head = 0, tail = 0;
+        queue[tail++] = ROOT;
+        while (head < tail) {
+            int current = queue[head++];
+            for (int i = graph.childOffsets[current]; i < graph.childOffsets[current + 1]; i++) {
+                int child = graph.children[i];
+                if (!members.get(child))
+                    continue;
+                BitSet childDepths = depths[child];
+                depths[current].stream().forEach(depth -> childDepths.set(depth + 1));
+                if (--pendingParents[child] == 0)
+                    queue[tail++] = child;
+            }
+        }
+        if (tail < members.cardinality()) //Cyclic hierarchy, only simple paths count
+            return enumeratePriorityLayers(target, members);
+
+        List<Set<Class<? extends Annotation>>> layers = new ArrayList<>();
+        for (int member = members.nextSetBit(0); member >= 0; member = members.nextSetBit(member + 1)) {
+            Class<? extends Annotation> vertex = graph.vertex(member);
+            depths[member].stream().forEach(depth -> {
+                while (layers.size() <= depth)
+                    layers.add(new HashSet<>());
+                layers.get(depth).add(vertex);
+            });
+        }
+        return layers;
+    }
+
+    private List<Set<Class<? extends Annotation>>> enumeratePriorityLayers(int target, BitSet members) {
+        List<Set<Class<? extends Annotation>>> prioritizedDependencies = new ArrayList<>();
+        int[] path = new int[members.cardinality()];
+        path[0] = ROOT;
+        BitSet onPath = new BitSet();
+        onPath.set(ROOT);
+        enumeratePaths(target, members, path, 1, onPath, prioritizedDependencies);
+        return prioritizedDependencies;
+    }
+
+    /**
+     * Depth first enumeration of every simple path from {@link Aspect} to the target, each vertex of a path is added to
+     * the layer of its position on the path.
+     */
+    private void enumeratePaths(int target, BitSet members, int[] path, int length, BitSet onPath,
+                                List<Set<Class<? extends Annotation>>> layers) {
+        int current = path[length - 1];
+        if (current == target) {
+            for (int i = 0; i < length; i++) {
+                while (layers.size() <= i)
+                    layers.add(new HashSet<>());
+                layers.get(i).add(graph.vertex(path[i]));
+            }
+            return;
+        }
+        for (int i = graph.childOffsets[current]; i < graph.childOffsets[current + 1]; i++) {
+            int child = graph.children[i];
+            if (!members.get(child) || onPath.get(child))
+                continue;
+            onPath.set(child);
+            path[length] = child;
+            enumeratePaths(target, members, path, length + 1, onPath, layers);
+            onPath.clear(child);
+        }
+    }
+}
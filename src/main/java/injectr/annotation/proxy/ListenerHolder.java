@@ -0,0 +1,10 @@
+package injectr.annotation.proxy;
+
+/**
+ * Holds the listener of a resolver. Cast plans and casts reference the holder rather than the resolver: they are cached
+ * in {@link ClassValue}s owned by the resolver, and a value referencing its owner can never be cleared.
+ */
+final class ListenerHolder {
+
+    volatile ResolverListener listener; //Null unless instrumented
+}
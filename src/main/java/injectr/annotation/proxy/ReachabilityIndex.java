@@ -0,0 +1,91 @@
+package injectr.annotation.proxy;
+
+import java.lang.annotation.Annotation;
+import java.util.*;
+
+/**
+ * Transitive closure of the resolved annotation hierarchy. Every vertex of the {@link AnnotationGraph} is given a
+ * bitset of the ids of all of its ancestors, so ancestry checks are a single bit test.
+ *
+ * The ancestors of an annotation are fully determined by its own meta-annotations, so once a vertex is indexed its
+ * entry never changes and extending the index only needs to index newly merged vertices. Indexes are immutable once
+ * built so they can be shared between threads.
+ */
+final class ReachabilityIndex {
+
+    private final AnnotationGraph graph;
+    private final List<BitSet> ancestors;
+    private final List<Set<Class<? extends Annotation>>> ancestorSets;
+
+    ReachabilityIndex(AnnotationGraph graph) {
+        this(graph, new ArrayList<>(), new ArrayList<>());
+        index();
+    }
+
+    private ReachabilityIndex(AnnotationGraph graph, List<BitSet> ancestors,
+                              List<Set<Class<? extends Annotation>>> ancestorSets) {
+        this.graph = graph;
+        this.ancestors = ancestors;
+        this.ancestorSets = ancestorSets;
+    }
+
+    /**
+     * Creates a new index covering every vertex of the graph, which must be an extension of this index's graph.
+     */
+    ReachabilityIndex extend(AnnotationGraph extended) {
+        ReachabilityIndex index = new ReachabilityIndex(extended, new ArrayList<>(ancestors), new ArrayList<>(ancestorSets));
+        index.index();
+        return index;
+    }
+
+    private void index() {
+        int[] queue = new int[graph.size() + 1]; //A vertex in a cycle may be queued again as its own ancestor
+        for (int id = ancestors.size(); id < graph.size(); id++) {
+            BitSet found = new BitSet();
+            int head = 0, tail = 0;
+            queue[tail++] = id;
+            while (head < tail) {
+                int current = queue[head++];
+                for (int i = graph.parentOffsets[current]; i < graph.parentOffsets[current + 1]; i++) {
+                    int parent = graph.parents[i];
+                    if (found.get(parent))
+                        continue;
+                    found.set(parent);
+                    if (parent < ancestors.size()) //Already indexed, so reuse its closure instead of climbing further
+                        found.or(ancestors.get(parent));
+                    else
+                        queue[tail++] = parent;
+                }
+            }
+            found.clear(id); //Annotations are never instances of themselves, even when part of a cycle
+            ancestors.add(found);
+            ancestorSets.add(Collections.unmodifiableSet(found.stream().mapToObj(graph::vertex)
+                    .collect(HashSet::new, HashSet::add, HashSet::addAll)));
+        }
+    }
+
+    int size() {
+        return ancestors.size();
+    }
+
+    boolean contains(Class<? extends Annotation> annotationClass) {
+        return graph.containsVertex(annotationClass);
+    }
+
+    boolean isAncestor(Class<? extends Annotation> ancestor, Class<? extends Annotation> annotationClass) {
+        int ancestorId = graph.id(ancestor), id = graph.id(annotationClass);
+        return ancestorId >= 0 && id >= 0 && ancestors.get(id).get(ancestorId);
+    }
+
+    /**
+     * @return The ids of the ancestors of the vertex, which must not be modified.
+     */
+    BitSet ancestorIds(int id) {
+        return ancestors.get(id);
+    }
+
+    Set<Class<? extends Annotation>> ancestorsOf(Class<? extends Annotation> annotationClass) {
+        int id = graph.id(annotationClass);
+        return id < 0 ? Collections.emptySet() : ancestorSets.get(id);
+    }
+}
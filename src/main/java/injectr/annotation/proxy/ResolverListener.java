@@ -0,0 +1,62 @@
+package injectr.annotation.proxy;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * Receives instrumentation events from an {@link AnnotationInheritanceResolver} and the casts it creates. Events are
+ * delivered synchronously on the calling thread, so implementations should be cheap and thread-safe. Every event is
+ * a no-op by default.
+ *
+ * @see AnnotationInheritanceResolver#setListener(ResolverListener)
+ * @see injectr.annotation.metrics.ResolverMetrics
+ */
+public interface ResolverListener {
+
+    /**
+     * Called whenever the hierarchy of an annotation type is looked up.
+     *
+     * @param annotationClass The annotation type.
+     * @param cached Whether the type was already resolved, otherwise its annotation tree had to be discovered.
+     */
+    default void resolved(Class<? extends Annotation> annotationClass, boolean cached) {}
+
+    /**
+     * Called after newly discovered annotation trees were merged into (and pruned against) the hierarchy.
+     *
+     * @param newVertices The number of newly rooted annotation types.
+     * @param nanos The time spent merging and pruning.
+     * @param vertices The number of annotation types in the resulting hierarchy, summed over the hierarchies of every
+     *                 class loader.
+     * @param edges The number of edges in the resulting hierarchy, summed over the hierarchies of every class loader.
+     */
+    default void merged(int newVertices, long nanos, int vertices, int edges) {}
+
+    /**
+     * Called after an annotation was cast.
+     *
+     * @param annotationClass The type of the cast annotation.
+     * @param toClass The type it was cast to.
+     * @param nanos The time spent casting.
+     */
+    default void cast(Class<? extends Annotation> annotationClass, Class<? extends Annotation> toClass, long nanos) {}
+
+    /**
+     * Called when a cast plan has to be created because none was cached for the pair of types.
+     */
+    default void castPlanCreated(Class<? extends Annotation> annotationClass, Class<? extends Annotation> toClass) {}
+
+    /**
+     * Called whenever a new cast instance (proxy or generated) is created.
+     */
+    default void castInstanceCreated(Class<? extends Annotation> annotationClass, Class<? extends Annotation> toClass) {}
+
+    /**
+     * Called when the source of an attribute has to be searched for, rather than being read from a dispatch table.
+     */
+    default void attributeLocated(Class<? extends Annotation> annotationClass, String attribute) {}
+
+    /**
+     * Called when a proxied attribute read was dispatched through a precomputed dispatch table.
+     */
+    default void attributeDispatched(Class<? extends Annotation> annotationClass) {}
+}
@@ -0,0 +1,40 @@
+package injectr.annotation.proxy;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded cache of annotation types which are known not to be rooted at {@link injectr.annotation.Aspect}, so
+ * framework annotations (e.g. {@code @Deprecated}, JPA or Jackson annotations) are only ever scanned once. Types are
+ * weakly held in a fixed size direct mapped table: a colliding type replaces the previous one, which then only costs a
+ * rescan. Being rooted is intrinsic to a type, so entries never need to be invalidated.
+ */
+final class UnrootedCache {
+
+    private final AtomicReferenceArray<WeakReference<Class<? extends Annotation>>> slots;
+    private final int mask;
+
+    /**
+     * @param capacity The number of slots, rounded up to a power of two.
+     */
+    UnrootedCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    boolean contains(Class<? extends Annotation> annotationClass) {
+        WeakReference<Class<? extends Annotation>> slot = slots.get(slotOf(annotationClass));
+        return slot != null && slot.get() == annotationClass;
+    }
+
+    void add(Class<? extends Annotation> annotationClass) {
+        slots.set(slotOf(annotationClass), new WeakReference<>(annotationClass));
+    }
+
+    private int slotOf(Class<? extends Annotation> annotationClass) {
+        int hash = System.identityHashCode(annotationClass);
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,115 @@
+package injectr.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.security.ProtectionDomain;
+
+/**
+ * Defines runtime generated classes in the same class loader and package as an existing "neighbor" class, this allows
+ * generated code to implement and call package-private types (such as non-public annotations).
+ */
+public final class ClassDefiner {
+
+    private static final Method privateLookupIn; //Java 9+
+    private static final Method lookupDefineClass; //Java 9+
+    private static final Method classLoaderDefineClass; //Java 8 fallback
+    private static final Method lookupDefineHiddenClass; //Java 15+
+    private static final Object noClassOptions;
+
+    static {
+        Method lookupIn = null, defineClass = null, loaderDefineClass = null;
+        try {
+            lookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+            defineClass = MethodHandles.Lookup.class.getMethod("defineClass", byte[].class);
+        } catch (NoSuchMethodException e) {
+            try {
+                loaderDefineClass = ClassLoader.class.getDeclaredMethod("defineClass", String.class, byte[].class,
+                        int.class, int.class, ProtectionDomain.class);
+                loaderDefineClass.setAccessible(true);
+            } catch (ReflectiveOperationException | RuntimeException e1) {
+                loaderDefineClass = null;
+            }
+        }
+        privateLookupIn = lookupIn;
+        lookupDefineClass = defineClass;
+        classLoaderDefineClass = loaderDefineClass;
+
+        Method defineHiddenClass = null;
+        Object classOptions = null;
+        try {
+            Class<?> classOption = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            classOptions = Array.newInstance(classOption, 0);
+            defineHiddenClass = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class,
+                    boolean.class, classOptions.getClass());
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            defineHiddenClass = null;
+        }
+        lookupDefineHiddenClass = defineHiddenClass;
+        noClassOptions = classOptions;
+    }
+
+    private ClassDefiner() {}
+
+    /**
+     * Defines a class next to the provided neighbor.
+     *
+     * @param neighbor The class whose loader and package should host the new class.
+     * @param name The binary name of the new class, it must be in the same package as the neighbor.
+     * @param bytecode The class file to define.
+     * @return The defined class.
+     * @throws IllegalStateException If the runtime does not allow defining classes next to the neighbor (e.g. Java 9+
+     * without the required {@code --add-opens}).
+     */
+    public static Class<?> defineNeighbor(Class<?> neighbor, String name, byte[] bytecode) {
+        if (privateLookupIn == null && classLoaderDefineClass == null)
+            throw unsupported(null);
+        try {
+            if (privateLookupIn != null) {
+                Object lookup = privateLookupIn.invoke(null, neighbor, MethodHandles.lookup());
+                return (Class<?>) lookupDefineClass.invoke(lookup, (Object) bytecode);
+            } else {
+                return (Class<?>) classLoaderDefineClass.invoke(neighbor.getClassLoader(), name, bytecode, 0,
+                        bytecode.length, neighbor.getProtectionDomain());
+            }
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof LinkageError)
+                throw (LinkageError) e.getCause();
+            throw unsupported(e.getCause());
+        } catch (IllegalAccessException | RuntimeException e) { //e.g. InaccessibleObjectException
+            throw unsupported(e);
+        }
+    }
+
+    /**
+     * Defines a hidden class next to the provided neighbor. Unlike classes defined by
+     * {@link #defineNeighbor(Class, String, byte[])}, hidden classes are unloaded once they are unreachable rather than
+     * living as long as the neighbor's class loader.
+     *
+     * @param neighbor The class whose loader and package should host the new class.
+     * @param bytecode The class file to define, its name must be in the same package as the neighbor.
+     * @return The defined class, or null if the runtime does not support hidden classes (before Java 15).
+     * @throws IllegalStateException If the runtime does not allow defining classes next to the neighbor.
+     */
+    public static Class<?> defineHidden(Class<?> neighbor, byte[] bytecode) {
+        if (lookupDefineHiddenClass == null)
+            return null;
+        try {
+            Object lookup = privateLookupIn.invoke(null, neighbor, MethodHandles.lookup());
+            return ((MethodHandles.Lookup) lookupDefineHiddenClass.invoke(lookup, bytecode, true, noClassOptions))
+                    .lookupClass();
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof LinkageError)
+                throw (LinkageError) e.getCause();
+            throw unsupported(e.getCause());
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw unsupported(e);
+        }
+    }
+
+    private static IllegalStateException unsupported(Throwable cause) {
+        return new IllegalStateException("Classes cannot be defined next to their neighbors on this runtime ("
+                + System.getProperty("java.vm.name") + " " + System.getProperty("java.version") + ")!", cause);
+    }
+}
@@ -0,0 +1,25 @@
+package injectr.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * A concurrent cache keyed by a pair of classes. Entries are stored through a {@link ClassValue} on the first class so
+ * they are collected alongside it, reads are lock-free and each value is computed at most once.
+ */
+public class ClassPairCache<V> {
+
+    private final ClassValue<ConcurrentMap<Class<?>, V>> cache = new ClassValue<ConcurrentMap<Class<?>, V>>() {
+        @Override
+        protected ConcurrentMap<Class<?>, V> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    public V get(Class<?> first, Class<?> second, Supplier<? extends V> supplier) {
+        ConcurrentMap<Class<?>, V> values = cache.get(first);
+        V value = values.get(second);
+        return value != null ? value : values.computeIfAbsent(second, cls -> supplier.get());
+    }
+}
@@ -0,0 +1,80 @@
+package injectr.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Matches package names against a set of package prefixes. The prefixes are compiled into a character trie, so a match
+ * only reads the package name once regardless of the number of prefixes.
+ */
+public final class PackageFilter {
+
+    /**
+     * Matches the packages of the JDK and other platform libraries, whose annotations are never part of the Injectr
+     * hierarchy.
+     */
+    public static final PackageFilter JAVA = new PackageFilter("java", "javax", "com.sun", "sun", "oracle", "org.xml", "com.oracle");
+
+    private final List<String> prefixes;
+    private final Node root = new Node();
+
+    public PackageFilter(String... prefixes) {
+        this.prefixes = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(prefixes)));
+        for (String prefix : prefixes) {
+            Node node = root;
+            for (int i = 0; i < prefix.length(); i++)
+                node = node.childOrCreate(prefix.charAt(i));
+            node.terminal = true;
+        }
+    }
+
+    /**
+     * @return A new filter matching the prefixes of this filter as well as the provided ones.
+     */
+    public PackageFilter with(String... additionalPrefixes) {
+        List<String> combined = new ArrayList<>(prefixes);
+        combined.addAll(Arrays.asList(additionalPrefixes));
+        return new PackageFilter(combined.toArray(new String[0]));
+    }
+
+    public List<String> getPrefixes() {
+        return prefixes;
+    }
+
+    public boolean matches(String packageName) {
+        Node node = root;
+        for (int i = 0; !node.terminal; i++) {
+            if (i == packageName.length() || (node = node.child(packageName.charAt(i))) == null)
+                return false;
+        }
+        return true;
+    }
+
+    private static final class Node {
+
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private boolean terminal;
+
+        Node child(char key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key)
+                    return children[i];
+            }
+            return null;
+        }
+
+        Node childOrCreate(char key) {
+            Node child = child(key);
+            if (child == null) {
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                keys[keys.length - 1] = key;
+                children[children.length - 1] = child = new Node();
+            }
+            return child;
+        }
+    }
+}
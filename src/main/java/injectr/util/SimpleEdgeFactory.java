@@ -39,7 +39,7 @@ public class SimpleEdgeFactory<V> implements EdgeFactory<V, SimpleEdgeFactory.Si
 
         @Override
         public int hashCode() {
-            return Objects.hash(getSource(), getSink());
+            return 31 * (31 + Objects.hashCode(source)) + Objects.hashCode(sink); //Same as Objects.hash, without varargs
         }
     }
 }
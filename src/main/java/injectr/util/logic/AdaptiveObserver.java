@@ -0,0 +1,289 @@
+package injectr.util.logic;
+
+import java.util.*;
+
+/**
+ * Evaluates a tree of {@link LogicalObserver}s while sampling the cost and selectivity of every node, the operands of
+ * every {@link AndObserver} and {@link OrObserver} are periodically reordered so the operands most likely to short
+ * circuit for their cost are observed first. Equal {@link PureObserver}s are only observed once per observation.
+ *
+ * Only runs of consecutive pure operands (pure observers, or operators over pure observers only) are reordered, any
+ * other operand keeps its position as the operands after it may rely on it, e.g. as a null check, or on its side
+ * effects.
+ *
+ * Statistics are sampled without synchronization, so they are approximate when observing from multiple threads.
+ *
+ * @see LogicalObserver#adaptive()
+ */
+public final class AdaptiveObserver<T> implements LogicalObserver<T> {
+
+    private static final int SAMPLE_MASK = 15; //Every 16th observation is sampled
+    private static final int REORDER_PERIOD = 1024; //Samples between reorderings
+
+    private final LogicalObserver<T> original;
+    private final Node<T> root;
+    private final int sharedCount;
+    private final ThreadLocal<Memo> memos; //Reused across observations, null without shared observers
+    private int observations, samples;
+
+    AdaptiveObserver(LogicalObserver<T> original) {
+        this.original = original;
+
+        //Equal pure observers referenced more than once share a memo slot
+        Map<LogicalObserver<T>, Integer> occurrences = new HashMap<>();
+        countPure(original, occurrences);
+        Map<LogicalObserver<T>, Integer> slots = new HashMap<>();
+        occurrences.forEach((observer, count) -> {
+            if (count > 1)
+                slots.put(observer, slots.size());
+        });
+        this.sharedCount = slots.size();
+        this.memos = sharedCount == 0 ? null : ThreadLocal.withInitial(() -> new Memo(sharedCount));
+        this.root = build(original, slots);
+    }
+
+    private static <T> void countPure(LogicalObserver<T> observer, Map<LogicalObserver<T>, Integer> occurrences) {
+        //Only the operators build decomposes, so shared leaves are counted exactly as they become leaves
+        Class<?> type = observer.getClass();
+        if (isComposite(type)) {
+            for (LogicalObserver<T> operand : ((CompositeObserver<T>) observer).observers())
+                countPure(operand, occurrences);
+        } else if (type == NotObserver.class) {
+            countPure(((NotObserver<T>) observer).original, occurrences);
+        } else if (observer instanceof PureObserver) {
+            occurrences.merge(observer, 1, Integer::sum);
+        }
+    }
+
+    private static <T> Node<T> build(LogicalObserver<T> observer, Map<LogicalObserver<T>, Integer> slots) {
+        Class<?> type = observer.getClass();
+        if (isComposite(type)) {
+            LogicalObserver<T>[] observers = ((CompositeObserver<T>) observer).observers();
+            List<Node<T>> operands = new ArrayList<>(observers.length);
+            for (LogicalObserver<T> operand : observers)
+                operands.add(build(operand, slots));
+            return new Composite<>(observer, operands);
+        } else if (type == NotObserver.class) {
+            return new Not<>(observer, build(((NotObserver<T>) observer).original, slots));
+        } else {
+            return new Leaf<>(observer, slots.getOrDefault(observer, -1));
+        }
+    }
+
+    private static boolean isComposite(Class<?> type) {
+        return type == AndObserver.class || type == OrObserver.class || type == XorObserver.class;
+    }
+
+    /**
+     * @return The observer this adaptive observer was created from.
+     */
+    public LogicalObserver<T> original() {
+        return original;
+    }
+
+    /**
+     * @return The statistics sampled for the tree's root, its operands are listed in their current evaluation order.
+     */
+    public ObserverStatistics statistics() {
+        return root.statistics();
+    }
+
+    @Override
+    public boolean observe(T in) {
+        if (memos == null)
+            return observe(in, null);
+        Memo memo = memos.get();
+        if (memo.inUse) //Reentrant observation from one of the leaves
+            return observe(in, new byte[sharedCount]);
+        memo.inUse = true;
+        try {
+            return observe(in, memo.values);
+        } finally {
+            Arrays.fill(memo.values, (byte) 0);
+            memo.inUse = false;
+        }
+    }
+
+    private boolean observe(T in, byte[] memo) {
+        if ((++observations & SAMPLE_MASK) != 0)
+            return root.observe(in, memo, false);
+
+        boolean result = root.observe(in, memo, true);
+        if (++samples % REORDER_PERIOD == 0)
+            root.reorder();
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T>[] newArray(int length) {
+        return (Node<T>[]) new Node<?>[length];
+    }
+
+    private static final class Memo {
+
+        final byte[] values;
+        boolean inUse;
+
+        Memo(int size) {
+            values = new byte[size];
+        }
+    }
+
+    private static abstract class Node<T> {
+
+        final LogicalObserver<T> observer;
+        final boolean pure;
+        long evaluations, passes, nanos;
+
+        Node(LogicalObserver<T> observer, boolean pure) {
+            this.observer = observer;
+            this.pure = pure;
+        }
+
+        final boolean observe(T in, byte[] memo, boolean sample) {
+            if (!sample)
+                return evaluate(in, memo, false);
+            long start = System.nanoTime();
+            boolean result = evaluate(in, memo, true);
+            nanos += System.nanoTime() - start;
+            evaluations++;
+            if (result)
+                passes++;
+            return result;
+        }
+
+        abstract boolean evaluate(T in, byte[] memo, boolean sample);
+
+        void reorder() {
+            //Halve the statistics so the ordering follows changes in the observed values
+            evaluations >>= 1;
+            passes >>= 1;
+            nanos >>= 1;
+        }
+
+        ObserverStatistics statistics() {
+            return new ObserverStatistics(observer, evaluations, passes, nanos, Collections.emptyList());
+        }
+
+        /**
+         * @return The expected cost of evaluating this node for each time it decides its parent.
+         */
+        double rank(boolean shortCircuitsOn) {
+            if (evaluations == 0)
+                return 0; //Unmeasured operands are tried first so they get measured
+            double decisive = shortCircuitsOn ? passes : evaluations - passes;
+            return ((double) nanos / evaluations) / ((decisive + 1) / (evaluations + 2));
+        }
+    }
+
+    private static final class Leaf<T> extends Node<T> {
+
+        private final int slot;
+
+        Leaf(LogicalObserver<T> observer, int slot) {
+            super(observer, observer instanceof PureObserver);
+            this.slot = slot;
+        }
+
+        @Override
+        boolean evaluate(T in, byte[] memo, boolean sample) {
+            if (slot < 0)
+                return observer.observe(in);
+            if (memo[slot] == 0)
+                memo[slot] = (byte) (observer.observe(in) ? 2 : 1);
+            return memo[slot] == 2;
+        }
+    }
+
+    private static final class Not<T> extends Node<T> {
+
+        private final Node<T> operand;
+
+        Not(LogicalObserver<T> observer, Node<T> operand) {
+            super(observer, operand.pure);
+            this.operand = operand;
+        }
+
+        @Override
+        boolean evaluate(T in, byte[] memo, boolean sample) {
+            return !operand.observe(in, memo, sample);
+        }
+
+        @Override
+        void reorder() {
+            super.reorder();
+            operand.reorder();
+        }
+
+        @Override
+        ObserverStatistics statistics() {
+            return new ObserverStatistics(observer, evaluations, passes, nanos,
+                    Collections.singletonList(operand.statistics()));
+        }
+    }
+
+    private static final class Composite<T> extends Node<T> {
+
+        private final Class<?> operator;
+        private volatile Node<T>[] operands; //Replaced as a whole when reordering
+
+        Composite(LogicalObserver<T> observer, List<Node<T>> operands) {
+            super(observer, operands.stream().allMatch(operand -> operand.pure));
+            this.operator = observer.getClass();
+            this.operands = operands.toArray(newArray(operands.size()));
+        }
+
+        @Override
+        boolean evaluate(T in, byte[] memo, boolean sample) {
+            Node<T>[] current = operands;
+            if (operator == XorObserver.class) {
+                boolean result = false;
+                for (Node<T> operand : current)
+                    result ^= operand.observe(in, memo, sample);
+                return result;
+            }
+            boolean shortCircuitOn = operator == OrObserver.class;
+            for (Node<T> operand : current) {
+                if (operand.observe(in, memo, sample) == shortCircuitOn)
+                    return shortCircuitOn;
+            }
+            return !shortCircuitOn;
+        }
+
+        @Override
+        void reorder() {
+            Node<T>[] current = operands.clone();
+            if (operator != XorObserver.class) { //XOR never short circuits
+                boolean shortCircuitsOn = operator == OrObserver.class;
+                double[] ranks = new double[current.length];
+                for (int i = 0; i < current.length; i++)
+                    ranks[i] = current[i].rank(shortCircuitsOn);
+                Node<T>[] reordered = current.clone();
+                for (int start = 0, end; start < current.length; start = end + 1) {
+                    //Sort the run of pure operands in [start, end), the impure operand at end keeps its position
+                    end = start;
+                    while (end < current.length && current[end].pure)
+                        end++;
+                    Integer[] order = new Integer[end - start];
+                    for (int i = 0; i < order.length; i++)
+                        order[i] = start + i;
+                    Arrays.sort(order, Comparator.comparingDouble(i -> ranks[i]));
+                    for (int i = 0; i < order.length; i++)
+                        reordered[start + i] = current[order[i]];
+                }
+                operands = reordered;
+            }
+            super.reorder();
+            for (Node<T> operand : current)
+                operand.reorder();
+        }
+
+        @Override
+        ObserverStatistics statistics() {
+            List<ObserverStatistics> statistics = new ArrayList<>();
+            for (Node<T> operand : operands)
+                statistics.add(operand.statistics());
+            return new ObserverStatistics(observer, evaluations, passes, nanos, Collections.unmodifiableList(statistics));
+        }
+    }
+}
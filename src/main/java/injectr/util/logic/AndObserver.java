@@ -1,22 +1,43 @@
 package injectr.util.logic;
 
+import java.util.BitSet;
+import java.util.List;
+
 /**
- * Logical observer which represents the AND operator.
+ * Logical observer which represents the AND operator over any number of operands.
  *
  * @see injectr.util.logic.LogicalObserver#and(LogicalObserver)
  * @see injectr.util.logic.LogicalObserver#and(LogicalObserver[])
  */
-public class AndObserver<T> implements LogicalObserver<T> {
-
-    private final LogicalObserver<T> original, next;
+public class AndObserver<T> extends CompositeObserver<T> {
 
     public AndObserver(LogicalObserver<T> original, LogicalObserver<T> next) {
-        this.original = original;
-        this.next = next;
+        super(original, next);
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs") //The operands are only copied
+    public AndObserver(LogicalObserver<T>... observers) {
+        super(observers);
     }
 
     @Override
     public boolean observe(T in) {
-        return original.observe(in) && next.observe(in);
+        for (LogicalObserver<T> observer : observers()) {
+            if (!observer.observe(in))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public BitSet observeAll(List<? extends T> in, BitSet rows) {
+        BitSet result = (BitSet) rows.clone();
+        for (LogicalObserver<T> observer : observers()) {
+            if (result.isEmpty())
+                break;
+            result = observer.observeAll(in, result); //Only rows which are true so far
+        }
+        return result;
     }
 }
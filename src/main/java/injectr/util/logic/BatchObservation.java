@@ -0,0 +1,52 @@
+package injectr.util.logic;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join evaluation of {@link LogicalObserver#observeAll(List, BitSet)} over large inputs. Inputs are split into
+ * word aligned ranges, each range is observed with range local indexes (so its bitsets are only as large as the range)
+ * and copies its words into its own part of the result.
+ */
+final class BatchObservation<T> extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int THRESHOLD = 1 << 13;
+
+    private final LogicalObserver<T> observer;
+    private final List<? extends T> in;
+    private final long[] words;
+    private final int from, to;
+
+    private BatchObservation(LogicalObserver<T> observer, List<? extends T> in, long[] words, int from, int to) {
+        this.observer = observer;
+        this.in = in;
+        this.words = words;
+        this.from = from;
+        this.to = to;
+    }
+
+    static <T> BitSet observe(LogicalObserver<T> observer, List<? extends T> in) {
+        if (in.size() <= THRESHOLD)
+            return observer.observeAll(in);
+        long[] words = new long[(in.size() + 63) >>> 6];
+        ForkJoinPool.commonPool().invoke(new BatchObservation<>(observer, in, words, 0, in.size()));
+        return BitSet.valueOf(words);
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= THRESHOLD) {
+            long[] range = observer.observeAll(in.subList(from, to)).toLongArray();
+            System.arraycopy(range, 0, words, from >>> 6, range.length);
+            return;
+        }
+
+        int middle = ((from + to) >>> 1) & ~63;
+        invokeAll(new BatchObservation<>(observer, in, words, from, middle),
+                new BatchObservation<>(observer, in, words, middle, to));
+    }
+}
@@ -0,0 +1,80 @@
+package injectr.util.logic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Base class of the n-ary logical operators. Operands which are composed with the same operator are flattened into a
+ * single array, so chains of any length are evaluated by one loop with a constant stack depth.
+ *
+ * Flattening happens once, on the first evaluation, rather than on construction: a fluent chain of n terms builds n
+ * nested observers and flattening each of them would copy the whole chain every time.
+ */
+abstract class CompositeObserver<T> implements LogicalObserver<T> {
+
+    private final LogicalObserver<T>[] operands;
+    private volatile LogicalObserver<T>[] observers;
+
+    CompositeObserver(LogicalObserver<T> original, LogicalObserver<T> next) {
+        operands = newArray(2);
+        operands[0] = original;
+        operands[1] = next;
+    }
+
+    CompositeObserver(LogicalObserver<T>[] operands) {
+        this.operands = operands.clone();
+    }
+
+    /**
+     * @return The flattened operands, which must not be modified.
+     */
+    final LogicalObserver<T>[] observers() {
+        LogicalObserver<T>[] flattened = observers;
+        if (flattened == null) //Racing threads flatten to equal arrays, so either may win
+            observers = flattened = flatten();
+        return flattened;
+    }
+
+    @SuppressWarnings("unchecked")
+    private LogicalObserver<T>[] flatten() {
+        //Walk the nested operands of the same operator with an explicit stack, so deep chains cannot overflow it
+        List<LogicalObserver<T>> flattened = new ArrayList<>();
+        Deque<LogicalObserver<T>> pending = new ArrayDeque<>();
+        push(pending, operands);
+        while (!pending.isEmpty()) {
+            LogicalObserver<T> operand = pending.pop();
+            if (operand.getClass() != getClass()) {
+                flattened.add(operand);
+                continue;
+            }
+            CompositeObserver<T> nested = (CompositeObserver<T>) operand;
+            LogicalObserver<T>[] nestedObservers = nested.observers;
+            if (nestedObservers != null) { //Already flattened, reuse it
+                for (LogicalObserver<T> observer : nestedObservers)
+                    flattened.add(observer);
+            } else {
+                push(pending, nested.operands);
+            }
+        }
+        return flattened.toArray(newArray(flattened.size()));
+    }
+
+    private static <T> void push(Deque<LogicalObserver<T>> pending, LogicalObserver<T>[] operands) {
+        for (int i = operands.length - 1; i >= 0; i--)
+            pending.push(operands[i]);
+    }
+
+    static <T> LogicalObserver<T>[] prepend(LogicalObserver<T> first, LogicalObserver<T>[] others) {
+        LogicalObserver<T>[] observers = newArray(others.length + 1);
+        observers[0] = first;
+        System.arraycopy(others, 0, observers, 1, others.length);
+        return observers;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> LogicalObserver<T>[] newArray(int length) {
+        return (LogicalObserver<T>[]) new LogicalObserver<?>[length];
+    }
+}
@@ -0,0 +1,27 @@
+package injectr.util.logic;
+
+/**
+ * Logical observer of {@code double} values which represents the AND operator over any number of operands.
+ *
+ * @see injectr.util.logic.DoubleLogicalObserver#and(DoubleLogicalObserver)
+ * @see injectr.util.logic.DoubleLogicalObserver#and(DoubleLogicalObserver[])
+ */
+public class DoubleAndObserver extends DoubleCompositeObserver {
+
+    public DoubleAndObserver(DoubleLogicalObserver original, DoubleLogicalObserver next) {
+        super(original, next);
+    }
+
+    public DoubleAndObserver(DoubleLogicalObserver... observers) {
+        super(observers);
+    }
+
+    @Override
+    public boolean observe(double in) {
+        for (DoubleLogicalObserver observer : observers()) {
+            if (!observer.observe(in))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+package injectr.util.logic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Base class of the n-ary logical operators over {@code double} values, operands are flattened once on the first evaluation
+ * like in {@link CompositeObserver}.
+ */
+abstract class DoubleCompositeObserver implements DoubleLogicalObserver {
+
+    private final DoubleLogicalObserver[] operands;
+    private volatile DoubleLogicalObserver[] observers;
+
+    DoubleCompositeObserver(DoubleLogicalObserver... operands) {
+        this.operands = operands.clone();
+    }
+
+    /**
+     * @return The flattened operands, which must not be modified.
+     */
+    final DoubleLogicalObserver[] observers() {
+        DoubleLogicalObserver[] flattened = observers;
+        if (flattened == null)
+            observers = flattened = flatten();
+        return flattened;
+    }
+
+    private DoubleLogicalObserver[] flatten() {
+        List<DoubleLogicalObserver> flattened = new ArrayList<>();
+        Deque<DoubleLogicalObserver> pending = new ArrayDeque<>();
+        push(pending, operands);
+        while (!pending.isEmpty()) {
+            DoubleLogicalObserver operand = pending.pop();
+            if (operand.getClass() != getClass()) {
+                flattened.add(operand);
+                continue;
+            }
+            DoubleCompositeObserver nested = (DoubleCompositeObserver) operand;
+            DoubleLogicalObserver[] nestedObservers = nested.observers;
+            if (nestedObservers != null) {
+                for (DoubleLogicalObserver observer : nestedObservers)
+                    flattened.add(observer);
+            } else {
+                push(pending, nested.operands);
+            }
+        }
+        return flattened.toArray(new DoubleLogicalObserver[0]);
+    }
+
+    private static void push(Deque<DoubleLogicalObserver> pending, DoubleLogicalObserver[] operands) {
+        for (int i = operands.length - 1; i >= 0; i--)
+            pending.push(operands[i]);
+    }
+
+    static DoubleLogicalObserver[] prepend(DoubleLogicalObserver first, DoubleLogicalObserver[] others) {
+        DoubleLogicalObserver[] observers = new DoubleLogicalObserver[others.length + 1];
+        observers[0] = first;
+        System.arraycopy(others, 0, observers, 1, others.length);
+        return observers;
+    }
+}
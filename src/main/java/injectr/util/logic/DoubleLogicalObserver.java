@@ -0,0 +1,141 @@
+package injectr.util.logic;
+
+import java.util.function.DoublePredicate;
+
+/**
+ * This is a {@link LogicalObserver} of {@code double} values, it observes them without boxing.
+ *
+ * @see LogicalObserver
+ */
+@FunctionalInterface
+public interface DoubleLogicalObserver {
+
+    /**
+     * This converts a {@link DoublePredicate} to a {@link DoubleLogicalObserver}.
+     *
+     * @param predicate The predicate to convert.
+     * @return The new {@link DoubleLogicalObserver}.
+     */
+    static DoubleLogicalObserver fromPredicate(DoublePredicate predicate) {
+        return predicate::test;
+    }
+
+    /**
+     * This pairs the current logical observer with another one and compares the two observations with an AND operator.
+     *
+     * @param other The observer to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #and(DoubleLogicalObserver[])
+     */
+    default DoubleLogicalObserver and(DoubleLogicalObserver other) {
+        return new DoubleAndObserver(this, other);
+    }
+
+    /**
+     * This combines the current logical observer with a set of other observers and compares the observations with an
+     * AND operator.
+     *
+     * @param others The observers to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #and(DoubleLogicalObserver)
+     */
+    default DoubleLogicalObserver and(DoubleLogicalObserver... others) {
+        if (others.length == 0)
+            return this;
+
+        return new DoubleAndObserver(DoubleCompositeObserver.prepend(this, others));
+    }
+
+    /**
+     * This pairs the current logical observer with another one and compares the two observations with an OR operator.
+     *
+     * @param other The observer to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #or(DoubleLogicalObserver[])
+     */
+    default DoubleLogicalObserver or(DoubleLogicalObserver other) {
+        return new DoubleOrObserver(this, other);
+    }
+
+    /**
+     * This combines the current logical observer with a set of other observers and compares the observations with an
+     * OR operator.
+     *
+     * @param others The observers to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #or(DoubleLogicalObserver)
+     */
+    default DoubleLogicalObserver or(DoubleLogicalObserver... others) {
+        if (others.length == 0)
+            return this;
+
+        return new DoubleOrObserver(DoubleCompositeObserver.prepend(this, others));
+    }
+
+    /**
+     * This pairs the current logical observer with another one and compares the two observations with an XOR operator.
+     *
+     * @param other The observer to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #xor(DoubleLogicalObserver[])
+     */
+    default DoubleLogicalObserver xor(DoubleLogicalObserver other) {
+        return new DoubleXorObserver(this, other);
+    }
+
+    /**
+     * This combines the current logical observer with a set of other observers and compares the observations with an
+     * XOR operator.
+     *
+     * @param others The observers to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #xor(DoubleLogicalObserver)
+     */
+    default DoubleLogicalObserver xor(DoubleLogicalObserver... others) {
+        if (others.length == 0)
+            return this;
+
+        return new DoubleXorObserver(DoubleCompositeObserver.prepend(this, others));
+    }
+
+    /**
+     * This negates the value returned by this observer. Negating a negated observer returns the original observer.
+     *
+     * @return The newly composed observer containing this logic.
+     */
+    default DoubleLogicalObserver negate() {
+        return new DoubleNotObserver(this);
+    }
+
+    /**
+     * This converts this {@link DoubleLogicalObserver} to a {@link DoublePredicate}.
+     *
+     * @return The predicate corresponding to this observer.
+     */
+    default DoublePredicate toPredicate() {
+        return this::observe;
+    }
+
+    /**
+     * This converts this {@link DoubleLogicalObserver} to a {@link LogicalObserver} of boxed values.
+     *
+     * @return The boxed observer corresponding to this observer.
+     */
+    default LogicalObserver<Double> boxed() {
+        return this::observe;
+    }
+
+    /**
+     * This is called to convert a value into a logical one.
+     *
+     * @param in The value to analyze.
+     * @return The corresponding logical value for the value.
+     */
+    boolean observe(double in);
+}
@@ -0,0 +1,25 @@
+package injectr.util.logic;
+
+/**
+ * Logical observer of {@code double} values which represents the NOT operator.
+ *
+ * @see DoubleLogicalObserver#negate()
+ */
+public class DoubleNotObserver implements DoubleLogicalObserver {
+
+    final DoubleLogicalObserver original;
+
+    public DoubleNotObserver(DoubleLogicalObserver original) {
+        this.original = original;
+    }
+
+    @Override
+    public DoubleLogicalObserver negate() {
+        return original; //Double negation
+    }
+
+    @Override
+    public boolean observe(double in) {
+        return !original.observe(in);
+    }
+}
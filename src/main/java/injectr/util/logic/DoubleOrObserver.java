@@ -0,0 +1,27 @@
+package injectr.util.logic;
+
+/**
+ * Logical observer of {@code double} values which represents the OR operator over any number of operands.
+ *
+ * @see injectr.util.logic.DoubleLogicalObserver#or(DoubleLogicalObserver)
+ * @see injectr.util.logic.DoubleLogicalObserver#or(DoubleLogicalObserver[])
+ */
+public class DoubleOrObserver extends DoubleCompositeObserver {
+
+    public DoubleOrObserver(DoubleLogicalObserver original, DoubleLogicalObserver next) {
+        super(original, next);
+    }
+
+    public DoubleOrObserver(DoubleLogicalObserver... observers) {
+        super(observers);
+    }
+
+    @Override
+    public boolean observe(double in) {
+        for (DoubleLogicalObserver observer : observers()) {
+            if (observer.observe(in))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,26 @@
+package injectr.util.logic;
+
+/**
+ * Logical observer of {@code double} values which represents the XOR operator over any number of operands.
+ *
+ * @see injectr.util.logic.DoubleLogicalObserver#xor(DoubleLogicalObserver)
+ * @see injectr.util.logic.DoubleLogicalObserver#xor(DoubleLogicalObserver[])
+ */
+public class DoubleXorObserver extends DoubleCompositeObserver {
+
+    public DoubleXorObserver(DoubleLogicalObserver original, DoubleLogicalObserver next) {
+        super(original, next);
+    }
+
+    public DoubleXorObserver(DoubleLogicalObserver... observers) {
+        super(observers);
+    }
+
+    @Override
+    public boolean observe(double in) {
+        boolean result = false;
+        for (DoubleLogicalObserver observer : observers())
+            result ^= observer.observe(in);
+        return result;
+    }
+}
@@ -0,0 +1,27 @@
+package injectr.util.logic;
+
+/**
+ * Logical observer of {@code int} values which represents the AND operator over any number of operands.
+ *
+ * @see injectr.util.logic.IntLogicalObserver#and(IntLogicalObserver)
+ * @see injectr.util.logic.IntLogicalObserver#and(IntLogicalObserver[])
+ */
+public class IntAndObserver extends IntCompositeObserver {
+
+    public IntAndObserver(IntLogicalObserver original, IntLogicalObserver next) {
+        super(original, next);
+    }
+
+    public IntAndObserver(IntLogicalObserver... observers) {
+        super(observers);
+    }
+
+    @Override
+    public boolean observe(int in) {
+        for (IntLogicalObserver observer : observers()) {
+            if (!observer.observe(in))
+                return false;
+        }
+        return true;
+    }
+}
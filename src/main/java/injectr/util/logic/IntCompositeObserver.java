@@ -0,0 +1,64 @@
+package injectr.util.logic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Base class of the n-ary logical operators over {@code int} values, operands are flattened once on the first evaluation
+ * like in {@link CompositeObserver}.
+ */
+abstract class IntCompositeObserver implements IntLogicalObserver {
+
+    private final IntLogicalObserver[] operands;
+    private volatile IntLogicalObserver[] observers;
+
+    IntCompositeObserver(IntLogicalObserver... operands) {
+        this.operands = operands.clone();
+    }
+
+    /**
+     * @return The flattened operands, which must not be modified.
+     */
+    final IntLogicalObserver[] observers() {
+        IntLogicalObserver[] flattened = observers;
+        if (flattened == null)
+            observers = flattened = flatten();
+        return flattened;
+    }
+
+    private IntLogicalObserver[] flatten() {
+        List<IntLogicalObserver> flattened = new ArrayList<>();
+        Deque<IntLogicalObserver> pending = new ArrayDeque<>();
+        push(pending, operands);
+        while (!pending.isEmpty()) {
+            IntLogicalObserver operand = pending.pop();
+            if (operand.getClass() != getClass()) {
+                flattened.add(operand);
+                continue;
+            }
+            IntCompositeObserver nested = (IntCompositeObserver) operand;
+            IntLogicalObserver[] nestedObservers = nested.observers;
+            if (nestedObservers != null) {
+                for (IntLogicalObserver observer : nestedObservers)
+                    flattened.add(observer);
+            } else {
+                push(pending, nested.operands);
+            }
+        }
+        return flattened.toArray(new IntLogicalObserver[0]);
+    }
+
+    private static void push(Deque<IntLogicalObserver> pending, IntLogicalObserver[] operands) {
+        for (int i = operands.length - 1; i >= 0; i--)
+            pending.push(operands[i]);
+    }
+
+    static IntLogicalObserver[] prepend(IntLogicalObserver first, IntLogicalObserver[] others) {
+        IntLogicalObserver[] observers = new IntLogicalObserver[others.length + 1];
+        observers[0] = first;
+        System.arraycopy(others, 0, observers, 1, others.length);
+        return observers;
+    }
+}
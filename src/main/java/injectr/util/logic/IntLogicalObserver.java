@@ -0,0 +1,141 @@
+package injectr.util.logic;
+
+import java.util.function.IntPredicate;
+
+/**
+ * This is a {@link LogicalObserver} of {@code int} values, it observes them without boxing.
+ *
+ * @see LogicalObserver
+ */
+@FunctionalInterface
+public interface IntLogicalObserver {
+
+    /**
+     * This converts a {@link IntPredicate} to a {@link IntLogicalObserver}.
+     *
+     * @param predicate The predicate to convert.
+     * @return The new {@link IntLogicalObserver}.
+     */
+    static IntLogicalObserver fromPredicate(IntPredicate predicate) {
+        return predicate::test;
+    }
+
+    /**
+     * This pairs the current logical observer with another one and compares the two observations with an AND operator.
+     *
+     * @param other The observer to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #and(IntLogicalObserver[])
+     */
+    default IntLogicalObserver and(IntLogicalObserver other) {
+        return new IntAndObserver(this, other);
+    }
+
+    /**
+     * This combines the current logical observer with a set of other observers and compares the observations with an
+     * AND operator.
+     *
+     * @param others The observers to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #and(IntLogicalObserver)
+     */
+    default IntLogicalObserver and(IntLogicalObserver... others) {
+        if (others.length == 0)
+            return this;
+
+        return new IntAndObserver(IntCompositeObserver.prepend(this, others));
+    }
+
+    /**
+     * This pairs the current logical observer with another one and compares the two observations with an OR operator.
+     *
+     * @param other The observer to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #or(IntLogicalObserver[])
+     */
+    default IntLogicalObserver or(IntLogicalObserver other) {
+        return new IntOrObserver(this, other);
+    }
+
+    /**
+     * This combines the current logical observer with a set of other observers and compares the observations with an
+     * OR operator.
+     *
+     * @param others The observers to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #or(IntLogicalObserver)
+     */
+    default IntLogicalObserver or(IntLogicalObserver... others) {
+        if (others.length == 0)
+            return this;
+
+        return new IntOrObserver(IntCompositeObserver.prepend(this, others));
+    }
+
+    /**
+     * This pairs the current logical observer with another one and compares the two observations with an XOR operator.
+     *
+     * @param other The observer to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #xor(IntLogicalObserver[])
+     */
+    default IntLogicalObserver xor(IntLogicalObserver other) {
+        return new IntXorObserver(this, other);
+    }
+
+    /**
+     * This combines the current logical observer with a set of other observers and compares the observations with an
+     * XOR operator.
+     *
+     * @param others The observers to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #xor(IntLogicalObserver)
+     */
+    default IntLogicalObserver xor(IntLogicalObserver... others) {
+        if (others.length == 0)
+            return this;
+
+        return new IntXorObserver(IntCompositeObserver.prepend(this, others));
+    }
+
+    /**
+     * This negates the value returned by this observer. Negating a negated observer returns the original observer.
+     *
+     * @return The newly composed observer containing this logic.
+     */
+    default IntLogicalObserver negate() {
+        return new IntNotObserver(this);
+    }
+
+    /**
+     * This converts this {@link IntLogicalObserver} to a {@link IntPredicate}.
+     *
+     * @return The predicate corresponding to this observer.
+     */
+    default IntPredicate toPredicate() {
+        return this::observe;
+    }
+
+    /**
+     * This converts this {@link IntLogicalObserver} to a {@link LogicalObserver} of boxed values.
+     *
+     * @return The boxed observer corresponding to this observer.
+     */
+    default LogicalObserver<Integer> boxed() {
+        return this::observe;
+    }
+
+    /**
+     * This is called to convert a value into a logical one.
+     *
+     * @param in The value to analyze.
+     * @return The corresponding logical value for the value.
+     */
+    boolean observe(int in);
+}
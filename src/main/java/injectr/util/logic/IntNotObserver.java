@@ -0,0 +1,25 @@
+package injectr.util.logic;
+
+/**
+ * Logical observer of {@code int} values which represents the NOT operator.
+ *
+ * @see IntLogicalObserver#negate()
+ */
+public class IntNotObserver implements IntLogicalObserver {
+
+    final IntLogicalObserver original;
+
+    public IntNotObserver(IntLogicalObserver original) {
+        this.original = original;
+    }
+
+    @Override
+    public IntLogicalObserver negate() {
+        return original; //Double negation
+    }
+
+    @Override
+    public boolean observe(int in) {
+        return !original.observe(in);
+    }
+}
@@ -0,0 +1,27 @@
+package injectr.util.logic;
+
+/**
+ * Logical observer of {@code int} values which represents the OR operator over any number of operands.
+ *
+ * @see injectr.util.logic.IntLogicalObserver#or(IntLogicalObserver)
+ * @see injectr.util.logic.IntLogicalObserver#or(IntLogicalObserver[])
+ */
+public class IntOrObserver extends IntCompositeObserver {
+
+    public IntOrObserver(IntLogicalObserver original, IntLogicalObserver next) {
+        super(original, next);
+    }
+
+    public IntOrObserver(IntLogicalObserver... observers) {
+        super(observers);
+    }
+
+    @Override
+    public boolean observe(int in) {
+        for (IntLogicalObserver observer : observers()) {
+            if (observer.observe(in))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,26 @@
+package injectr.util.logic;
+
+/**
+ * Logical observer of {@code int} values which represents the XOR operator over any number of operands.
+ *
+ * @see injectr.util.logic.IntLogicalObserver#xor(IntLogicalObserver)
+ * @see injectr.util.logic.IntLogicalObserver#xor(IntLogicalObserver[])
+ */
+public class IntXorObserver extends IntCompositeObserver {
+
+    public IntXorObserver(IntLogicalObserver original, IntLogicalObserver next) {
+        super(original, next);
+    }
+
+    public IntXorObserver(IntLogicalObserver... observers) {
+        super(observers);
+    }
+
+    @Override
+    public boolean observe(int in) {
+        boolean result = false;
+        for (IntLogicalObserver observer : observers())
+            result ^= observer.observe(in);
+        return result;
+    }
+}
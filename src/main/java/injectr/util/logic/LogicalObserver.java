@@ -1,5 +1,8 @@
 package injectr.util.logic;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 import java.util.function.Predicate;
 
 /**
@@ -49,11 +52,7 @@ public interface LogicalObserver<T> {
         if (others.length == 0)
             return this;
 
-        LogicalObserver<T> currObserver = this;
-        for (LogicalObserver<T> other : others)
-            currObserver = currObserver.and(other);
-
-        return currObserver;
+        return new AndObserver<>(CompositeObserver.prepend(this, others));
     }
 
     /**
@@ -81,11 +80,7 @@ public interface LogicalObserver<T> {
         if (others.length == 0)
             return this;
 
-        LogicalObserver<T> currObserver = this;
-        for (LogicalObserver<T> other : others)
-            currObserver = currObserver.or(other);
-
-        return currObserver;
+        return new OrObserver<>(CompositeObserver.prepend(this, others));
     }
 
     /**
@@ -113,15 +108,11 @@ public interface LogicalObserver<T> {
         if (others.length == 0)
             return this;
 
-        LogicalObserver<T> currObserver = this;
-        for (LogicalObserver<T> other : others)
-            currObserver = currObserver.xor(other);
-
-        return currObserver;
+        return new XorObserver<>(CompositeObserver.prepend(this, others));
     }
 
     /**
-     * This negates the value returned by this observer.
+     * This negates the value returned by this observer. Negating a negated observer returns the original observer.
      *
      * @return The newly composed observer containing this logic.
      */
@@ -129,6 +120,85 @@ public interface LogicalObserver<T> {
         return new NotObserver<>(this);
     }
 
+    /**
+     * This compiles the tree of {@link AndObserver}, {@link OrObserver}, {@link XorObserver} and {@link NotObserver}
+     * nodes composing this observer into a single generated class, which evaluates the whole expression in one method.
+     * Any other observer in the tree is called as is.
+     *
+     * NOTE: The tree is captured when compiling, so the result should be reused rather than compiled again.
+     *
+     * @return The compiled observer, or this observer if it could not be compiled.
+     */
+    default LogicalObserver<T> compile() {
+        return ObserverCompiler.compile(this);
+    }
+
+    /**
+     * This wraps this observer so its {@link AndObserver} and {@link OrObserver} operands are reordered at runtime,
+     * based on their sampled cost and selectivity, to short circuit as early as possible.
+     *
+     * @return The adaptive observer.
+     *
+     * @see AdaptiveObserver#statistics()
+     */
+    default AdaptiveObserver<T> adaptive() {
+        return new AdaptiveObserver<>(this);
+    }
+
+    /**
+     * This observes every provided value.
+     *
+     * @param in The values to analyze.
+     * @return The indexes of the values which were observed to be true.
+     *
+     * @see #observeAll(List)
+     */
+    default BitSet observeAll(T[] in) {
+        return observeAll(Arrays.asList(in));
+    }
+
+    /**
+     * This observes every provided value.
+     *
+     * @param in The values to analyze.
+     * @return The indexes of the values which were observed to be true.
+     *
+     * @see #observeAll(List, BitSet)
+     */
+    default BitSet observeAll(List<? extends T> in) {
+        BitSet rows = new BitSet(in.size());
+        rows.set(0, in.size());
+        return observeAll(in, rows);
+    }
+
+    /**
+     * This observes the selected values. Composed observers combine the results of their operands word by word and
+     * only pass on the rows which are still undecided, so an operand is never asked about a row it cannot change.
+     *
+     * @param in The values to analyze, it should support fast random access.
+     * @param rows The indexes of the values to observe, it is not modified.
+     * @return The indexes of the selected values which were observed to be true.
+     */
+    default BitSet observeAll(List<? extends T> in, BitSet rows) {
+        BitSet result = new BitSet(rows.length());
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            if (observe(in.get(row)))
+                result.set(row);
+        }
+        return result;
+    }
+
+    /**
+     * This observes every provided value like {@link #observeAll(List)}, large inputs are split across the common
+     * fork-join pool.
+     *
+     * @param in The values to analyze, it should support fast random access.
+     * @return The indexes of the values which were observed to be true.
+     */
+    default BitSet observeAllParallel(List<? extends T> in) {
+        return BatchObservation.observe(this, in);
+    }
+
     /**
      * This converts this {@link LogicalObserver} to a {@link Predicate}.
      *
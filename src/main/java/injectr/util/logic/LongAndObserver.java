@@ -0,0 +1,27 @@
+package injectr.util.logic;
+
+/**
+ * Logical observer of {@code long} values which represents the AND operator over any number of operands.
+ *
+ * @see injectr.util.logic.LongLogicalObserver#and(LongLogicalObserver)
+ * @see injectr.util.logic.LongLogicalObserver#and(LongLogicalObserver[])
+ */
+public class LongAndObserver extends LongCompositeObserver {
+
+    public LongAndObserver(LongLogicalObserver original, LongLogicalObserver next) {
+        super(original, next);
+    }
+
+    public LongAndObserver(LongLogicalObserver... observers) {
+        super(observers);
+    }
+
+    @Override
+    public boolean observe(long in) {
+        for (LongLogicalObserver observer : observers()) {
+            if (!observer.observe(in))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+package injectr.util.logic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Base class of the n-ary logical operators over {@code long} values, operands are flattened once on the first evaluation
+ * like in {@link CompositeObserver}.
+ */
+abstract class LongCompositeObserver implements LongLogicalObserver {
+
+    private final LongLogicalObserver[] operands;
+    private volatile LongLogicalObserver[] observers;
+
+    LongCompositeObserver(LongLogicalObserver... operands) {
+        this.operands = operands.clone();
+    }
+
+    /**
+     * @return The flattened operands, which must not be modified.
+     */
+    final LongLogicalObserver[] observers() {
+        LongLogicalObserver[] flattened = observers;
+        if (flattened == null)
+            observers = flattened = flatten();
+        return flattened;
+    }
+
+    private LongLogicalObserver[] flatten() {
+        List<LongLogicalObserver> flattened = new ArrayList<>();
+        Deque<LongLogicalObserver> pending = new ArrayDeque<>();
+        push(pending, operands);
+        while (!pending.isEmpty()) {
+            LongLogicalObserver operand = pending.pop();
+            if (operand.getClass() != getClass()) {
+                flattened.add(operand);
+                continue;
+            }
+            LongCompositeObserver nested = (LongCompositeObserver) operand;
+            LongLogicalObserver[] nestedObservers = nested.observers;
+            if (nestedObservers != null) {
+                for (LongLogicalObserver observer : nestedObservers)
+                    flattened.add(observer);
+            } else {
+                push(pending, nested.operands);
+            }
+        }
+        return flattened.toArray(new LongLogicalObserver[0]);
+    }
+
+    private static void push(Deque<LongLogicalObserver> pending, LongLogicalObserver[] operands) {
+        for (int i = operands.length - 1; i >= 0; i--)
+            pending.push(operands[i]);
+    }
+
+    static LongLogicalObserver[] prepend(LongLogicalObserver first, LongLogicalObserver[] others) {
+        LongLogicalObserver[] observers = new LongLogicalObserver[others.length + 1];
+        observers[0] = first;
+        System.arraycopy(others, 0, observers, 1, others.length);
+        return observers;
+    }
+}
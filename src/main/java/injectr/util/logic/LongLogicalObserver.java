@@ -0,0 +1,141 @@
+package injectr.util.logic;
+
+import java.util.function.LongPredicate;
+
+/**
+ * This is a {@link LogicalObserver} of {@code long} values, it observes them without boxing.
+ *
+ * @see LogicalObserver
+ */
+@FunctionalInterface
+public interface LongLogicalObserver {
+
+    /**
+     * This converts a {@link LongPredicate} to a {@link LongLogicalObserver}.
+     *
+     * @param predicate The predicate to convert.
+     * @return The new {@link LongLogicalObserver}.
+     */
+    static LongLogicalObserver fromPredicate(LongPredicate predicate) {
+        return predicate::test;
+    }
+
+    /**
+     * This pairs the current logical observer with another one and compares the two observations with an AND operator.
+     *
+     * @param other The observer to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #and(LongLogicalObserver[])
+     */
+    default LongLogicalObserver and(LongLogicalObserver other) {
+        return new LongAndObserver(this, other);
+    }
+
+    /**
+     * This combines the current logical observer with a set of other observers and compares the observations with an
+     * AND operator.
+     *
+     * @param others The observers to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #and(LongLogicalObserver)
+     */
+    default LongLogicalObserver and(LongLogicalObserver... others) {
+        if (others.length == 0)
+            return this;
+
+        return new LongAndObserver(LongCompositeObserver.prepend(this, others));
+    }
+
+    /**
+     * This pairs the current logical observer with another one and compares the two observations with an OR operator.
+     *
+     * @param other The observer to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #or(LongLogicalObserver[])
+     */
+    default LongLogicalObserver or(LongLogicalObserver other) {
+        return new LongOrObserver(this, other);
+    }
+
+    /**
+     * This combines the current logical observer with a set of other observers and compares the observations with an
+     * OR operator.
+     *
+     * @param others The observers to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #or(LongLogicalObserver)
+     */
+    default LongLogicalObserver or(LongLogicalObserver... others) {
+        if (others.length == 0)
+            return this;
+
+        return new LongOrObserver(LongCompositeObserver.prepend(this, others));
+    }
+
+    /**
+     * This pairs the current logical observer with another one and compares the two observations with an XOR operator.
+     *
+     * @param other The observer to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #xor(LongLogicalObserver[])
+     */
+    default LongLogicalObserver xor(LongLogicalObserver other) {
+        return new LongXorObserver(this, other);
+    }
+
+    /**
+     * This combines the current logical observer with a set of other observers and compares the observations with an
+     * XOR operator.
+     *
+     * @param others The observers to combine with this one.
+     * @return The newly composed observer containing this logic.
+     *
+     * @see #xor(LongLogicalObserver)
+     */
+    default LongLogicalObserver xor(LongLogicalObserver... others) {
+        if (others.length == 0)
+            return this;
+
+        return new LongXorObserver(LongCompositeObserver.prepend(this, others));
+    }
+
+    /**
+     * This negates the value returned by this observer. Negating a negated observer returns the original observer.
+     *
+     * @return The newly composed observer containing this logic.
+     */
+    default LongLogicalObserver negate() {
+        return new LongNotObserver(this);
+    }
+
+    /**
+     * This converts this {@link LongLogicalObserver} to a {@link LongPredicate}.
+     *
+     * @return The predicate corresponding to this observer.
+     */
+    default LongPredicate toPredicate() {
+        return this::observe;
+    }
+
+    /**
+     * This converts this {@link LongLogicalObserver} to a {@link LogicalObserver} of boxed values.
+     *
+     * @return The boxed observer corresponding to this observer.
+     */
+    default LogicalObserver<Long> boxed() {
+        return this::observe;
+    }
+
+    /**
+     * This is called to convert a value into a logical one.
+     *
+     * @param in The value to analyze.
+     * @return The corresponding logical value for the value.
+     */
+    boolean observe(long in);
+}
@@ -0,0 +1,25 @@
+package injectr.util.logic;
+
+/**
+ * Logical observer of {@code long} values which represents the NOT operator.
+ *
+ * @see LongLogicalObserver#negate()
+ */
+public class LongNotObserver implements LongLogicalObserver {
+
+    final LongLogicalObserver original;
+
+    public LongNotObserver(LongLogicalObserver original) {
+        this.original = original;
+    }
+
+    @Override
+    public LongLogicalObserver negate() {
+        return original; //Double negation
+    }
+
+    @Override
+    public boolean observe(long in) {
+        return !original.observe(in);
+    }
+}
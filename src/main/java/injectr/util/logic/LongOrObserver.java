@@ -0,0 +1,27 @@
+package injectr.util.logic;
+
+/**
+ * Logical observer of {@code long} values which represents the OR operator over any number of operands.
+ *
+ * @see injectr.util.logic.LongLogicalObserver#or(LongLogicalObserver)
+ * @see injectr.util.logic.LongLogicalObserver#or(LongLogicalObserver[])
+ */
+public class LongOrObserver extends LongCompositeObserver {
+
+    public LongOrObserver(LongLogicalObserver original, LongLogicalObserver next) {
+        super(original, next);
+    }
+
+    public LongOrObserver(LongLogicalObserver... observers) {
+        super(observers);
+    }
+
+    @Override
+    public boolean observe(long in) {
+        for (LongLogicalObserver observer : observers()) {
+            if (observer.observe(in))
+                return true;
+        }
+        return false;
+    }
+}
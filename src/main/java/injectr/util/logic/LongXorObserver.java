@@ -0,0 +1,26 @@
+package injectr.util.logic;
+
+/**
+ * Logical observer of {@code long} values which represents the XOR operator over any number of operands.
+ *
+ * @see injectr.util.logic.LongLogicalObserver#xor(LongLogicalObserver)
+ * @see injectr.util.logic.LongLogicalObserver#xor(LongLogicalObserver[])
+ */
+public class LongXorObserver extends LongCompositeObserver {
+
+    public LongXorObserver(LongLogicalObserver original, LongLogicalObserver next) {
+        super(original, next);
+    }
+
+    public LongXorObserver(LongLogicalObserver... observers) {
+        super(observers);
+    }
+
+    @Override
+    public boolean observe(long in) {
+        boolean result = false;
+        for (LongLogicalObserver observer : observers())
+            result ^= observer.observe(in);
+        return result;
+    }
+}
@@ -1,5 +1,8 @@
 package injectr.util.logic;
 
+import java.util.BitSet;
+import java.util.List;
+
 /**
  * Logical observer which represents the NOT operator.
  *
@@ -7,14 +10,26 @@ package injectr.util.logic;
  */
 public class NotObserver<T> implements LogicalObserver<T> {
 
-    private final LogicalObserver<T> original;
+    final LogicalObserver<T> original;
 
     public NotObserver(LogicalObserver<T> original) {
         this.original = original;
     }
 
+    @Override
+    public LogicalObserver<T> negate() {
+        return original; //Double negation
+    }
+
     @Override
     public boolean observe(T in) {
         return !original.observe(in);
     }
+
+    @Override
+    public BitSet observeAll(List<? extends T> in, BitSet rows) {
+        BitSet result = (BitSet) rows.clone();
+        result.andNot(original.observeAll(in, rows));
+        return result;
+    }
 }
@@ -0,0 +1,202 @@
+package injectr.util.logic;
+
+import injectr.util.ClassDefiner;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Compiles a tree of {@link AndObserver}, {@link OrObserver}, {@link XorObserver} and {@link NotObserver} nodes into a
+ * single generated class whose {@link LogicalObserver#observe(Object)} evaluates the whole expression with plain
+ * branches. Every other observer is a leaf, which is stored in its own field so each call site only sees one type.
+ *
+ * Compiled classes are hidden classes where supported, or otherwise defined by a class loader of their own, so they
+ * are unloaded along with the compiled observer instead of accumulating in the library's class loader.
+ */
+final class ObserverCompiler {
+
+    private static final String OBSERVER = Type.getInternalName(LogicalObserver.class);
+    private static final String OBSERVER_DESCRIPTOR = Type.getDescriptor(LogicalObserver.class);
+    private static final String OBSERVE_DESCRIPTOR = "(Ljava/lang/Object;)Z";
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    private ObserverCompiler() {}
+
+    /**
+     * @return The compiled observer, or the provided observer if it has no operators to compile or the expression is
+     * too large (or too deeply nested) for a single method.
+     */
+    static <T> LogicalObserver<T> compile(LogicalObserver<T> observer) {
+        if (!isOperator(observer))
+            return observer;
+
+        List<LogicalObserver<?>> leaves = new ArrayList<>();
+        Map<LogicalObserver<?>, Integer> slots = new IdentityHashMap<>();
+        String name = LogicalObserver.class.getName() + "$$Compiled$" + classCounter.incrementAndGet();
+        byte[] bytecode;
+        try {
+            bytecode = writeClass(name.replace('.', '/'), observer, leaves, slots);
+        } catch (RuntimeException e) { //ASM rejects methods over the 64KB code limit
+            return observer;
+        } catch (StackOverflowError e) { //Operators are emitted recursively
+            return observer;
+        }
+
+        try {
+            Class<?> compiled = ClassDefiner.defineHidden(LogicalObserver.class, bytecode);
+            if (compiled == null) //Only public types are referenced, so a throwaway loader can host the class
+                compiled = new CompilationLoader().define(name, bytecode);
+            @SuppressWarnings("unchecked")
+            LogicalObserver<T> instance = (LogicalObserver<T>) compiled.getConstructor(LogicalObserver[].class)
+                    .newInstance((Object) leaves.toArray(new LogicalObserver<?>[0]));
+            return instance;
+        } catch (LinkageError | ReflectiveOperationException | IllegalStateException e) {
+            return observer;
+        }
+    }
+
+    private static boolean isOperator(LogicalObserver<?> observer) {
+        Class<?> type = observer.getClass();
+        return type == AndObserver.class || type == OrObserver.class || type == XorObserver.class
+                || type == NotObserver.class;
+    }
+
+    private static byte[] writeClass(String internalName, LogicalObserver<?> root, List<LogicalObserver<?>> leaves,
+                                     Map<LogicalObserver<?>, Integer> slots) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, internalName, null,
+                "java/lang/Object", new String[]{OBSERVER});
+
+        MethodVisitor observe = writer.visitMethod(ACC_PUBLIC | ACC_FINAL, "observe", OBSERVE_DESCRIPTOR, null, null);
+        observe.visitCode();
+        Label isTrue = new Label();
+        new Emitter(internalName, observe, leaves, slots).branch(root, isTrue, true);
+        observe.visitInsn(ICONST_0);
+        observe.visitInsn(IRETURN);
+        observe.visitLabel(isTrue);
+        observe.visitInsn(ICONST_1);
+        observe.visitInsn(IRETURN);
+        observe.visitMaxs(0, 0);
+        observe.visitEnd();
+
+        //Fields are written once the leaves are known
+        for (int i = 0; i < leaves.size(); i++)
+            writer.visitField(ACC_PRIVATE | ACC_FINAL, "leaf" + i, OBSERVER_DESCRIPTOR, null, null).visitEnd();
+
+        MethodVisitor constructor = writer.visitMethod(ACC_PUBLIC, "<init>", "([" + OBSERVER_DESCRIPTOR + ")V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        for (int i = 0; i < leaves.size(); i++) {
+            constructor.visitVarInsn(ALOAD, 0);
+            constructor.visitVarInsn(ALOAD, 1);
+            constructor.visitLdcInsn(i);
+            constructor.visitInsn(AALOAD);
+            constructor.visitFieldInsn(PUTFIELD, internalName, "leaf" + i, OBSERVER_DESCRIPTOR);
+        }
+        constructor.visitInsn(RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static final class Emitter {
+
+        private final String internalName;
+        private final MethodVisitor method;
+        private final List<LogicalObserver<?>> leaves;
+        private final Map<LogicalObserver<?>, Integer> slots;
+
+        Emitter(String internalName, MethodVisitor method, List<LogicalObserver<?>> leaves,
+                Map<LogicalObserver<?>, Integer> slots) {
+            this.internalName = internalName;
+            this.method = method;
+            this.leaves = leaves;
+            this.slots = slots;
+        }
+
+        /**
+         * Emits code which jumps to the target when the observer evaluates to jumpIf and falls through otherwise.
+         */
+        void branch(LogicalObserver<?> observer, Label target, boolean jumpIf) {
+            Class<?> type = observer.getClass();
+            if (type == NotObserver.class) {
+                branch(((NotObserver<?>) observer).original, target, !jumpIf);
+            } else if (type == AndObserver.class || type == OrObserver.class) {
+                //AND jumps as soon as an operand is false, OR as soon as one is true
+                boolean shortCircuit = type == OrObserver.class;
+                LogicalObserver<?>[] observers = ((CompositeObserver<?>) observer).observers();
+                if (observers.length == 0) { //Empty AND is true, empty OR is false
+                    if (jumpIf != shortCircuit)
+                        method.visitJumpInsn(GOTO, target);
+                } else if (jumpIf == shortCircuit) {
+                    for (LogicalObserver<?> operand : observers)
+                        branch(operand, target, jumpIf);
+                } else {
+                    Label decided = new Label();
+                    for (int i = 0; i < observers.length - 1; i++)
+                        branch(observers[i], decided, shortCircuit);
+                    branch(observers[observers.length - 1], target, jumpIf);
+                    method.visitLabel(decided);
+                }
+            } else {
+                value(observer);
+                method.visitJumpInsn(jumpIf ? IFNE : IFEQ, target);
+            }
+        }
+
+        /**
+         * Emits code which pushes the observation as an int.
+         */
+        private void value(LogicalObserver<?> observer) {
+            Class<?> type = observer.getClass();
+            if (type == XorObserver.class) {
+                LogicalObserver<?>[] observers = ((CompositeObserver<?>) observer).observers();
+                method.visitInsn(ICONST_0);
+                for (int i = 0; i < observers.length; i++) {
+                    value(observers[i]);
+                    method.visitInsn(IXOR);
+                }
+            } else if (type == AndObserver.class || type == OrObserver.class || type == NotObserver.class) {
+                Label isTrue = new Label(), end = new Label();
+                branch(observer, isTrue, true);
+                method.visitInsn(ICONST_0);
+                method.visitJumpInsn(GOTO, end);
+                method.visitLabel(isTrue);
+                method.visitInsn(ICONST_1);
+                method.visitLabel(end);
+            } else {
+                int slot = slots.computeIfAbsent(observer, leaf -> {
+                    leaves.add(leaf);
+                    return leaves.size() - 1;
+                });
+                method.visitVarInsn(ALOAD, 0);
+                method.visitFieldInsn(GETFIELD, internalName, "leaf" + slot, OBSERVER_DESCRIPTOR);
+                method.visitVarInsn(ALOAD, 1);
+                method.visitMethodInsn(INVOKEINTERFACE, OBSERVER, "observe", OBSERVE_DESCRIPTOR, true);
+            }
+        }
+    }
+
+    private static final class CompilationLoader extends ClassLoader {
+
+        CompilationLoader() {
+            super(LogicalObserver.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] bytecode) {
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package injectr.util.logic;
+
+import java.util.List;
+
+/**
+ * A point in time view of the runtime statistics an {@link AdaptiveObserver} sampled for one node of its tree.
+ */
+public final class ObserverStatistics {
+
+    private final LogicalObserver<?> observer;
+    private final long evaluations, passes, nanos;
+    private final List<ObserverStatistics> operands;
+
+    ObserverStatistics(LogicalObserver<?> observer, long evaluations, long passes, long nanos,
+                       List<ObserverStatistics> operands) {
+        this.observer = observer;
+        this.evaluations = evaluations;
+        this.passes = passes;
+        this.nanos = nanos;
+        this.operands = operands;
+    }
+
+    /**
+     * @return The observer this node evaluates.
+     */
+    public LogicalObserver<?> observer() {
+        return observer;
+    }
+
+    /**
+     * @return The number of sampled evaluations since the last reordering.
+     */
+    public long evaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return The fraction of sampled evaluations which were true, or NaN if nothing was sampled.
+     */
+    public double selectivity() {
+        return evaluations == 0 ? Double.NaN : (double) passes / evaluations;
+    }
+
+    /**
+     * @return The average time of a sampled evaluation in nanoseconds, or NaN if nothing was sampled.
+     */
+    public double averageCost() {
+        return evaluations == 0 ? Double.NaN : (double) nanos / evaluations;
+    }
+
+    /**
+     * @return The statistics of the operands in their current evaluation order.
+     */
+    public List<ObserverStatistics> operands() {
+        return operands;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        append(builder, 0);
+        return builder.toString();
+    }
+
+    private void append(StringBuilder builder, int depth) {
+        for (int i = 0; i < depth; i++)
+            builder.append("  ");
+        builder.append(observer.getClass().getSimpleName())
+                .append(String.format(" [evaluations=%d, selectivity=%.3f, cost=%.1fns]%n", evaluations, selectivity(), averageCost()));
+        operands.forEach(operand -> operand.append(builder, depth + 1));
+    }
+}
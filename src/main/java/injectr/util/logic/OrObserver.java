@@ -1,22 +1,46 @@
 package injectr.util.logic;
 
+import java.util.BitSet;
+import java.util.List;
+
 /**
- * Logical observer which represents the OR operator.
+ * Logical observer which represents the OR operator over any number of operands.
  *
  * @see injectr.util.logic.LogicalObserver#or(LogicalObserver)
  * @see injectr.util.logic.LogicalObserver#or(LogicalObserver[])
  */
-public class OrObserver<T> implements LogicalObserver<T> {
-
-    private final LogicalObserver<T> original, next;
+public class OrObserver<T> extends CompositeObserver<T> {
 
     public OrObserver(LogicalObserver<T> original, LogicalObserver<T> next) {
-        this.original = original;
-        this.next = next;
+        super(original, next);
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs") //The operands are only copied
+    public OrObserver(LogicalObserver<T>... observers) {
+        super(observers);
     }
 
     @Override
     public boolean observe(T in) {
-        return original.observe(in) || original.observe(in);
+        for (LogicalObserver<T> observer : observers()) {
+            if (observer.observe(in))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public BitSet observeAll(List<? extends T> in, BitSet rows) {
+        BitSet result = new BitSet(rows.length());
+        BitSet undecided = (BitSet) rows.clone();
+        for (LogicalObserver<T> observer : observers()) {
+            if (undecided.isEmpty())
+                break;
+            BitSet observed = observer.observeAll(in, undecided);
+            result.or(observed);
+            undecided.andNot(observed);
+        }
+        return result;
     }
 }
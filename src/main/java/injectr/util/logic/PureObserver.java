@@ -0,0 +1,20 @@
+package injectr.util.logic;
+
+/**
+ * Marks a {@link LogicalObserver} whose observation only depends on the observed value, which has no side effects and
+ * which does not throw for any value. An {@link AdaptiveObserver} evaluates equal pure observers appearing multiple
+ * times in its tree once per observation, and may evaluate pure operands in any order.
+ */
+@FunctionalInterface
+public interface PureObserver<T> extends LogicalObserver<T> {
+
+    /**
+     * This marks an observer as side-effect-free.
+     *
+     * @param observer The observer to mark.
+     * @return The marked observer.
+     */
+    static <T> PureObserver<T> of(LogicalObserver<T> observer) {
+        return observer instanceof PureObserver ? (PureObserver<T>) observer : observer::observe;
+    }
+}
@@ -1,22 +1,39 @@
 package injectr.util.logic;
 
+import java.util.BitSet;
+import java.util.List;
+
 /**
- * Logical observer which represents the XOR operator.
+ * Logical observer which represents the XOR operator over any number of operands.
  *
  * @see injectr.util.logic.LogicalObserver#xor(LogicalObserver)
  * @see injectr.util.logic.LogicalObserver#xor(LogicalObserver[])
  */
-public class XorObserver<T> implements LogicalObserver<T> {
-
-    private final LogicalObserver<T> original, next;
+public class XorObserver<T> extends CompositeObserver<T> {
 
     public XorObserver(LogicalObserver<T> original, LogicalObserver<T> next) {
-        this.original = original;
-        this.next = next;
+        super(original, next);
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs") //The operands are only copied
+    public XorObserver(LogicalObserver<T>... observers) {
+        super(observers);
     }
 
     @Override
     public boolean observe(T in) {
-        return original.observe(in) ^ next.observe(in);
+        boolean result = false;
+        for (LogicalObserver<T> observer : observers())
+            result ^= observer.observe(in);
+        return result;
+    }
+
+    @Override
+    public BitSet observeAll(List<? extends T> in, BitSet rows) {
+        BitSet result = new BitSet(rows.length());
+        for (LogicalObserver<T> observer : observers())
+            result.xor(observer.observeAll(in, rows));
+        return result;
     }
 }
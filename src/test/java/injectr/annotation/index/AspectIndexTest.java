@@ -0,0 +1,67 @@
+package injectr.annotation.index;
+
+import injectr.util.PackageFilter;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class AspectIndexTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        AspectIndex index = new AspectIndex.Builder()
+                .parents("a.Base", Collections.singletonList("injectr.annotation.Aspect"))
+                .parents("a.Child", Arrays.asList("a.Base", "a.Other"))
+                .layers("a.Child", Arrays.asList(Collections.singletonList("injectr.annotation.Aspect"),
+                        Arrays.asList("a.Base", "a.Other"), Collections.singletonList("a.Child")))
+                .attribute("a.Child", "value()Ljava/lang/String;", "a.Base")
+                .build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.write(out);
+        AspectIndex read = AspectIndex.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(index.types(), read.types());
+        assertEquals(index.parentsOf("a.Child"), read.parentsOf("a.Child"));
+        assertEquals(index.layersOf("a.Child"), read.layersOf("a.Child"));
+        assertEquals("a.Base", read.attributesOf("a.Child").get("value()Ljava/lang/String;"));
+        assertNull(read.layersOf("a.Base"));
+    }
+
+    @Test
+    public void testWithout() {
+        AspectIndex index = new AspectIndex.Builder()
+                .parents("a.Base", Collections.singletonList("injectr.annotation.Aspect"))
+                .parents("b.Framework", Collections.singletonList("a.Base"))
+                .parents("a.Child", Arrays.asList("a.Base", "b.Framework"))
+                .parents("a.Other", Collections.singletonList("a.Base"))
+                .build();
+
+        AspectIndex filtered = index.without(PackageFilter.JAVA.with("b"));
+        assertTrue(filtered.contains("a.Base"));
+        assertTrue(filtered.contains("a.Other"));
+        assertFalse(filtered.contains("b.Framework"));
+        assertFalse(filtered.contains("a.Child")); //Rooted through an ignored package as well
+        assertSame(index, index.without(PackageFilter.JAVA));
+        assertTrue(index.without(new PackageFilter("injectr")).isEmpty());
+    }
+
+    @Test
+    public void testProcessorOutput() {
+        //The test sources are compiled with the processor, so their aspects are indexed
+        AspectIndex index = AspectIndex.load(getClass().getClassLoader());
+        String prefix = "injectr.annotation.proxy.AnnotationInheritanceResolverTest$";
+        assertTrue(index.contains(prefix + "Multi"));
+        assertFalse(index.contains(prefix + "BrokenBase"));
+        assertEquals(Collections.singleton(prefix + "Inheriting"), index.parentsOf(prefix + "Mixed"));
+        assertEquals(Arrays.asList(Collections.singletonList("injectr.annotation.Aspect"),
+                Collections.singletonList(prefix + "Base"), Arrays.asList(prefix + "Inheriting", prefix + "Inheriting2"),
+                Collections.singletonList(prefix + "Multi")), index.layersOf(prefix + "Multi"));
+        assertEquals(prefix + "Nested", index.attributesOf(prefix + "Nested").get("value()Ljava/lang/String;"));
+    }
+}
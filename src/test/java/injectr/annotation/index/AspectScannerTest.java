@@ -0,0 +1,38 @@
+package injectr.annotation.index;
+
+import injectr.annotation.proxy.AnnotationInheritanceResolverTest;
+import injectr.util.PackageFilter;
+import org.junit.Test;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class AspectScannerTest {
+
+    @Test
+    public void testDirectoryScan() throws URISyntaxException {
+        Path classes = Paths.get(AnnotationInheritanceResolverTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        AspectIndex index = AspectScanner.scan(Collections.singletonList(classes));
+        String prefix = "injectr.annotation.proxy.AnnotationInheritanceResolverTest$";
+        assertTrue(index.contains(prefix + "Multi"));
+        assertFalse(index.contains(prefix + "BrokenBase"));
+        assertEquals(Collections.singleton(prefix + "Inheriting"), index.parentsOf(prefix + "Mixed"));
+        assertEquals(Arrays.asList(Collections.singletonList("injectr.annotation.Aspect"),
+                Collections.singletonList(prefix + "Base"), Arrays.asList(prefix + "Inheriting", prefix + "Inheriting2"),
+                Collections.singletonList(prefix + "Multi")), index.layersOf(prefix + "Multi"));
+        assertEquals(prefix + "Nested", index.attributesOf(prefix + "Nested").get("value()Ljava/lang/String;"));
+
+        //The scanned index matches the one written by the processor
+        AspectIndex processed = AspectIndex.load(getClass().getClassLoader());
+        assertEquals(processed.layersOf(prefix + "Multi"), index.layersOf(prefix + "Multi"));
+        assertEquals(processed.attributesOf(prefix + "Nested"), index.attributesOf(prefix + "Nested"));
+
+        AspectIndex ignoring = AspectScanner.scan(Collections.singletonList(classes), PackageFilter.JAVA.with("injectr.annotation.proxy"));
+        assertFalse(ignoring.contains(prefix + "Multi"));
+    }
+}
@@ -0,0 +1,72 @@
+package injectr.annotation.index;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class AspectSnapshotTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        AspectIndex index = new AspectIndex.Builder()
+                .parents("a.Base", Collections.singletonList("injectr.annotation.Aspect"))
+                .parents("a.Child", Arrays.asList("a.Base", "a.Other"))
+                .layers("a.Child", Arrays.asList(Collections.singletonList("injectr.annotation.Aspect"),
+                        Arrays.asList("a.Base", "a.Other"), Collections.singletonList("a.Child")))
+                .attribute("a.Child", "value()Ljava/lang/String;", "a.Base")
+                .build();
+        Path directory = Files.createTempDirectory("injectr");
+        Path file = directory.resolve("aspects.snapshot");
+        try {
+            AspectSnapshot.write(file, index, "fingerprint");
+            AspectIndex read = AspectSnapshot.read(file, "fingerprint");
+
+            assertEquals(index.types(), read.types());
+            assertEquals(index.parentsOf("a.Child"), read.parentsOf("a.Child"));
+            assertEquals(index.layersOf("a.Child"), read.layersOf("a.Child"));
+            assertEquals("a.Base", read.attributesOf("a.Child").get("value()Ljava/lang/String;"));
+            assertNull(read.layersOf("a.Base"));
+            assertNull(read.attributesOf("a.Base"));
+
+            assertNull(AspectSnapshot.read(file, "other"));
+            assertNull(AspectSnapshot.read(directory.resolve("missing"), "fingerprint"));
+
+            Files.write(file, Arrays.copyOf(Files.readAllBytes(file), 24));
+            try {
+                AspectSnapshot.read(file, "fingerprint");
+                fail();
+            } catch (IOException expected) {
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testFingerprint() throws IOException {
+        Path directory = Files.createTempDirectory("injectr");
+        Path file = directory.resolve("nested").resolve("Type.class");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, new byte[]{1});
+            String fingerprint = AspectSnapshot.fingerprint(directory.toString());
+            assertEquals(fingerprint, AspectSnapshot.fingerprint(directory.toString()));
+
+            //Editing a class in a nested package leaves the directory entry itself untouched
+            Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1_000));
+            assertNotEquals(fingerprint, AspectSnapshot.fingerprint(directory.toString()));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.getParent());
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package injectr.annotation.metrics;
+
+import injectr.annotation.Aspect;
+import injectr.annotation.proxy.AnnotationInheritanceResolver;
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class ResolverMetricsTest {
+
+    @Test
+    public void testMetrics() throws JMException {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        ResolverMetrics metrics = new ResolverMetrics();
+        resolver.setListener(metrics);
+
+        Derived annotation = Annotated.class.getAnnotation(Derived.class);
+        assertEquals("derived", resolver.cast(annotation, Base.class).value());
+        assertEquals("derived", resolver.cast(annotation, Base.class).value());
+
+        assertEquals(2, metrics.getCasts());
+        assertEquals(1, metrics.getCastPlansCreated());
+        assertEquals(0.5, metrics.getCastPlanHitRate(), 0);
+        assertEquals(2, metrics.getCastInstancesCreated());
+        assertEquals(2, metrics.getCachedDispatches());
+        assertTrue(metrics.getSlowPathResolutions() > 0);
+        assertEquals(1, metrics.getMerges());
+        assertEquals(2, metrics.getMergedVertices());
+        assertEquals(3, metrics.getGraphVertices());
+        assertEquals(2, metrics.getGraphEdges());
+        assertTrue(metrics.getResolutionMisses() >= 1);
+        assertTrue(metrics.getResolutionHits() > 0);
+        assertTrue(metrics.getCastNanos99thPercentile() >= metrics.getCastLatency().percentile(50));
+
+        ObjectName name = new ObjectName("injectr:type=ResolverMetrics,name=test");
+        metrics.register(name.toString());
+        try {
+            assertEquals(2L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Casts"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+
+        resolver.setListener(null);
+        resolver.cast(annotation, Base.class);
+        assertEquals(2, metrics.getCasts());
+    }
+
+    @Aspect
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Base {
+        String value();
+    }
+
+    @Base("base")
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Derived {
+        String value();
+    }
+
+    @Derived("derived")
+    static class Annotated {
+
+    }
+}
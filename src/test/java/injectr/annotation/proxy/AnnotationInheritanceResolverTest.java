@@ -2,13 +2,31 @@ package injectr.annotation.proxy;
 
 import injectr.annotation.Aspect;
 import injectr.annotation.AspectOverride;
+import injectr.annotation.index.AspectIndex;
+import injectr.util.PackageFilter;
+import injectr.util.SimpleEdgeFactory.SimpleEdge;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.annotation.*;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.lang.reflect.Proxy;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 public class AnnotationInheritanceResolverTest {
 
@@ -28,6 +46,15 @@ public class AnnotationInheritanceResolverTest {
         assertTrue(deps.isEmpty());
     }
 
+    @Test
+    public void testPartialPruning() {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        Set<Class<? extends Annotation>> deps = resolver.flattenDependencies(Mixed.class);
+        assertEquals(new HashSet<>(Arrays.asList(Inheriting.class, Base.class, Aspect.class)), deps);
+        assertTrue(resolver.flattenDependencies(BrokenBase.class).isEmpty());
+        assertFalse(resolver.dependencies().containsVertex(BrokenBase.class));
+    }
+
     @Test
     public void testMultipleDependencies() {
         AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
@@ -47,6 +74,18 @@ public class AnnotationInheritanceResolverTest {
         assertTrue(deps.containsAll(Arrays.asList(Inheriting.class, Inheriting2.class, Base.class, Aspect.class)));
     }
 
+    @Test
+    public void testDiamondDependencies() {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        Set<SimpleEdge<Class<? extends Annotation>>> edges = resolver.resolveDependencies(Multi.class);
+        assertEquals(5, edges.size());
+        assertTrue(edges.containsAll(Arrays.asList(new SimpleEdge<>(Aspect.class, Base.class),
+                new SimpleEdge<>(Base.class, Inheriting.class), new SimpleEdge<>(Base.class, Inheriting2.class),
+                new SimpleEdge<>(Inheriting.class, Multi.class), new SimpleEdge<>(Inheriting2.class, Multi.class))));
+        assertTrue(resolver.isInstanceOf(Multi.class, Aspect.class));
+        assertFalse(resolver.isInstanceOf(Inheriting.class, Inheriting2.class));
+    }
+
     @Test
     public void testInstanceChecking() {
         AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
@@ -67,6 +106,337 @@ public class AnnotationInheritanceResolverTest {
 
         Inheriting castedAnnotation2 = resolver.cast(annotation2, Inheriting.class);
         assertEquals(castedAnnotation2.value(), "Test2");
+        assertEquals(castedAnnotation2, annotation2);
+        assertEquals(castedAnnotation2.toString(), annotation2.toString());
+    }
+
+    @Test
+    public void testCastPlanning() {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        assertEquals(Arrays.asList(Collections.singleton(Aspect.class), Collections.singleton(Base.class),
+                new HashSet<>(Arrays.asList(Inheriting.class, Inheriting2.class)), Collections.singleton(Multi.class)),
+                resolver.prioritizeDependencies(Multi.class));
+
+        Multi annotation = AnnotationTest2.class.getAnnotation(Multi.class);
+        assertSame(resolver.planFor(annotation, Inheriting.class), resolver.planFor(annotation, Inheriting.class));
+        assertNotSame(resolver.planFor(annotation, Inheriting.class), resolver.planFor(annotation, Base.class));
+    }
+
+    @Test
+    public void testBootstrappedResolution() {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        resolver.bootstrap(getClass().getClassLoader());
+        assertNotNull(resolver.indexedAttributes(Multi.class));
+        assertEquals(new HashSet<>(Arrays.asList(Inheriting.class, Inheriting2.class, Base.class, Aspect.class)),
+                resolver.flattenDependencies(Multi.class));
+        assertTrue(resolver.flattenDependencies(BrokenBase.class).isEmpty());
+        assertEquals("Test2", resolver.cast(AnnotationTest2.class.getAnnotation(Multi.class), Inheriting.class).value());
+        assertEquals("Test3", resolver.cast(AnnotationTest.class.getAnnotation(Nested.class), Inheriting.class).value());
+    }
+
+    @Test
+    public void testSharedDispatch() {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        Nested annotation1 = AnnotationTest.class.getAnnotation(Nested.class);
+        Nested annotation2 = AnnotationTest3.class.getAnnotation(Nested.class);
+        IntStream.range(0, 1000).parallel().forEach(i -> {
+            Nested annotation = i % 2 == 0 ? annotation1 : annotation2;
+            assertEquals(annotation.value(), resolver.cast(annotation, Inheriting.class).value());
+        });
+    }
+
+    @Test
+    public void testConcurrentResolution() {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        List<Class<? extends Annotation>> types = Arrays.asList(Nested.class, Multi.class, Inheriting.class,
+                Inheriting2.class, BrokenBase.class);
+        IntStream.range(0, 1000).parallel().forEach(i -> {
+            Class<? extends Annotation> type = types.get(i % types.size());
+            assertEquals(type != BrokenBase.class, resolver.isInstanceOf(type, Base.class));
+            assertEquals(type == Nested.class || type == Multi.class, resolver.isInstanceOf(type, Inheriting.class));
+        });
+    }
+
+    @Test
+    public void testBulkResolution() {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        Set<Class<? extends Annotation>> rooted = resolver.resolveAll(Arrays.asList(Nested.class, Multi.class,
+                Mixed.class, BrokenBase.class));
+        assertEquals(new HashSet<>(Arrays.asList(Nested.class, Multi.class, Mixed.class)), rooted);
+        assertTrue(resolver.dependencies().containsVertex(Inheriting2.class));
+        assertFalse(resolver.dependencies().containsVertex(BrokenBase.class));
+        assertTrue(resolver.isInstanceOf(Multi.class, Inheriting2.class));
+        assertEquals("Test3", resolver.cast(AnnotationTest.class.getAnnotation(Nested.class), Inheriting.class).value());
+    }
+
+    @Test
+    public void testElementAspects() {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        assertEquals(Collections.singletonList(AnnotationTest2.class.getAnnotation(Multi.class)),
+                resolver.aspectsOf(AnnotationTest2.class));
+        assertTrue(resolver.aspectsOf(AnnotationInheritanceResolverTest.class).isEmpty());
+
+        List<Inheriting> aspects = resolver.aspectsOf(AnnotationTest.class, Inheriting.class);
+        assertEquals(1, aspects.size());
+        assertEquals("Test3", aspects.get(0).value());
+        assertSame(aspects, resolver.aspectsOf(AnnotationTest.class, Inheriting.class));
+        assertEquals(resolver.aspectsOf(AnnotationTest.class), resolver.aspectsOf(AnnotationTest.class, Nested.class));
+        assertTrue(resolver.aspectsOf(AnnotationTest.class, Inheriting2.class).isEmpty());
+    }
+
+    @Test
+    public void testGeneratedCasting() {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver(CastMode.GENERATED);
+        Nested annotation1 = AnnotationTest.class.getAnnotation(Nested.class);
+        Multi annotation2 = AnnotationTest2.class.getAnnotation(Multi.class);
+        Inheriting castedAnnotation1 = resolver.cast(annotation1, Inheriting.class);
+        assertFalse(Proxy.isProxyClass(castedAnnotation1.getClass()));
+        assertEquals("Test3", castedAnnotation1.value());
+        assertEquals(Nested.class, castedAnnotation1.annotationType());
+        assertEquals(annotation1, castedAnnotation1);
+        assertEquals(annotation1.hashCode(), castedAnnotation1.hashCode());
+
+        Inheriting castedAnnotation2 = resolver.cast(annotation2, Inheriting.class);
+        assertEquals("Test2", castedAnnotation2.value());
+        assertSame(castedAnnotation2.getClass(), resolver.cast(annotation2, Inheriting.class).getClass());
+        assertTrue(isHidden(castedAnnotation1.getClass())); //Unloaded along with the resolver's plans
+    }
+
+    /**
+     * @return Whether the class is a hidden class, the calling test is skipped before Java 15.
+     */
+    private static boolean isHidden(Class<?> type) {
+        try {
+            return (Boolean) Class.class.getMethod("isHidden").invoke(type);
+        } catch (NoSuchMethodException e) {
+            assumeTrue("Hidden classes require Java 15+", false);
+            return false;
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    public void testProvenance() {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        Map<Class<? extends Annotation>, Annotation> provenance = resolver.provenanceOf(Nested.class);
+        assertEquals(new HashSet<>(Arrays.asList(Inheriting.class, Base.class, Aspect.class)), provenance.keySet());
+        assertEquals("Test", ((Inheriting) provenance.get(Inheriting.class)).value());
+        assertEquals(Inheriting.class.getAnnotation(Base.class), provenance.get(Base.class));
+        assertSame(provenance, resolver.provenanceOf(Nested.class));
+        assertTrue(resolver.provenanceOf(BrokenBase.class).isEmpty());
+    }
+
+    @Test
+    public void testCastInterning() throws Exception {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        CastInterner interner = new CastInterner(16);
+        resolver.setCastInterner(interner);
+        Nested annotation = AnnotationTest.class.getAnnotation(Nested.class);
+        Inheriting cast = resolver.cast(annotation, Inheriting.class);
+        assertSame(cast, resolver.cast(annotation, Inheriting.class));
+        assertNotSame(cast, resolver.cast(AnnotationTest3.class.getAnnotation(Nested.class), Inheriting.class));
+        assertNotSame(cast, resolver.cast(annotation, Base.class));
+        assertEquals(1, interner.hits());
+        assertEquals(3, interner.misses());
+        assertEquals(3, interner.size());
+
+        CastInterner bounded = new CastInterner(1);
+        resolver.setCastInterner(bounded);
+        Multi multi = AnnotationTest2.class.getAnnotation(Multi.class);
+        for (int i = 0; i < 100; i++) {
+            Class<? extends Annotation> target = i % 2 == 0 ? Inheriting.class : Base.class;
+            resolver.cast(multi, target);
+        }
+        assertEquals(1, bounded.size());
+        assertEquals(0, bounded.hits());
+        assertEquals(99, bounded.evictions());
+
+        //Interned cast types are held weakly, so they do not pin their class loader
+        CastInterner redeploying = new CastInterner(16);
+        WeakReference<ClassLoader> loader = internRedeployed(redeploying, annotation);
+        assertCollected("interned cast", () -> loader.get() == null && redeploying.size() == 0);
+    }
+
+    private static WeakReference<ClassLoader> internRedeployed(CastInterner interner, Annotation annotation) throws Exception {
+        ClassLoader loader = new RedeployingClassLoader(Redeployed.class.getName());
+        Class<? extends Annotation> redeployed = loader.loadClass(Redeployed.class.getName()).asSubclass(Annotation.class);
+        interner.put(annotation, redeployed, new Object());
+        assertEquals(1, interner.size());
+        return new WeakReference<>(loader);
+    }
+
+    @Test
+    public void testMaterializedCasting() {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver(CastMode.MATERIALIZED);
+        TaggedChild annotation = AnnotationTest4.class.getAnnotation(TaggedChild.class);
+        Tagged cast = resolver.cast(annotation, Tagged.class);
+        assertFalse(Proxy.isProxyClass(cast.getClass()));
+        assertEquals(3, cast.weight());
+        assertArrayEquals(new String[]{"a", "b"}, cast.tags());
+        cast.tags()[0] = "modified";
+        assertEquals("a", cast.tags()[0]);
+        assertEquals("child", ((TaggedChild) cast).value());
+        assertEquals(TaggedChild.class, cast.annotationType());
+        assertEquals(annotation, cast);
+        assertEquals(cast, annotation);
+        assertEquals(annotation.hashCode(), cast.hashCode());
+        assertEquals(annotation.toString(), cast.toString());
+        assertEquals(cast, resolver.cast(annotation, Tagged.class));
+
+        Nested nested = AnnotationTest.class.getAnnotation(Nested.class);
+        assertEquals("Test3", resolver.cast(nested, Inheriting.class).value());
+        assertNotEquals(nested, resolver.cast(AnnotationTest3.class.getAnnotation(Nested.class), Inheriting.class));
+        assertTrue(isHidden(cast.getClass())); //Unloaded along with the resolver's plans
+    }
+
+    @Test
+    public void testCyclicPrioritization() {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        assertEquals(new HashSet<>(Arrays.asList(Cyclic.class, Base.class, Aspect.class)),
+                resolver.flattenDependencies(Cycled.class));
+        List<Set<Class<? extends Annotation>>> layers = resolver.prioritizeDependencies(Cycled.class);
+        assertEquals(Arrays.asList(Collections.singleton(Aspect.class), Collections.singleton(Base.class),
+                Collections.singleton(Cyclic.class), Collections.singleton(Cycled.class)), layers);
+    }
+
+    @Test
+    public void testUnrootedCaching() {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        AtomicInteger misses = new AtomicInteger();
+        resolver.setListener(new ResolverListener() {
+            @Override
+            public void resolved(Class<? extends Annotation> annotationClass, boolean cached) {
+                if (!cached)
+                    misses.incrementAndGet();
+            }
+        });
+        assertTrue(resolver.aspectsOf(AnnotationTest5.class).isEmpty()); //Bulk resolution caches unrooted types too
+        for (int i = 0; i < 3; i++) {
+            assertFalse(resolver.isInstanceOf(BrokenBase.class, Aspect.class));
+            assertFalse(resolver.isInstanceOf(Deprecated.class, Aspect.class));
+            assertFalse(resolver.isInstanceOf(Unrooted.class, Aspect.class));
+        }
+        assertEquals(1, misses.get());
+    }
+
+    @Test
+    public void testIgnoredPackages() {
+        PackageFilter filter = PackageFilter.JAVA.with("injectr.annotation.proxy");
+        assertTrue(filter.matches("javax.persistence"));
+        assertTrue(filter.matches("injectr.annotation.proxy"));
+        assertFalse(filter.matches("injectr.annotation"));
+        assertFalse(filter.matches(""));
+        assertTrue(new PackageFilter("").matches("anything"));
+
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver(CastMode.PROXY, filter);
+        assertTrue(resolver.flattenDependencies(Nested.class).isEmpty());
+        assertFalse(resolver.isInstanceOf(Nested.class, Aspect.class));
+
+        //The processor's index was built with the default filter, bootstrapping must not bypass the configured one
+        AnnotationInheritanceResolver bootstrapped = new AnnotationInheritanceResolver(CastMode.PROXY, filter);
+        bootstrapped.bootstrap(getClass().getClassLoader());
+        assertFalse(bootstrapped.isInstanceOf(Nested.class, Aspect.class));
+        assertTrue(bootstrapped.flattenDependencies(Nested.class).isEmpty());
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        resolver.resolveAll(Arrays.asList(Multi.class, Nested.class, TaggedChild.class));
+
+        //The exported hierarchy matches the one indexed by the processor
+        AspectIndex exported = resolver.toIndex();
+        AspectIndex processed = AspectIndex.load(getClass().getClassLoader());
+        for (Class<? extends Annotation> type : Arrays.asList(Multi.class, Nested.class, TaggedChild.class)) {
+            assertEquals(processed.parentsOf(type.getName()), exported.parentsOf(type.getName()));
+            assertEquals(processed.layersOf(type.getName()), exported.layersOf(type.getName()));
+            assertEquals(processed.attributesOf(type.getName()), exported.attributesOf(type.getName()));
+        }
+
+        Path directory = Files.createTempDirectory("injectr");
+        Path file = directory.resolve("aspects.snapshot");
+        try {
+            AnnotationInheritanceResolver restarted = new AnnotationInheritanceResolver();
+            assertFalse(restarted.loadSnapshot(file));
+            resolver.writeSnapshot(file);
+            assertTrue(restarted.loadSnapshot(file));
+            assertEquals(exported.types(), restarted.toIndex().types());
+            assertEquals(3, restarted.cast(AnnotationTest4.class.getAnnotation(TaggedChild.class), Tagged.class).weight());
+            assertEquals("Test3", restarted.cast(AnnotationTest.class.getAnnotation(Nested.class), Inheriting.class).value());
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testClassLoaderPartitioning() throws Exception {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver();
+        WeakReference<ClassLoader> loader = resolveRedeployed(resolver);
+        assertCollected("redeployed class loader", () -> loader.get() == null);
+        assertTrue(resolver.isInstanceOf(Redeployed.class, Base.class));
+    }
+
+    @Test
+    public void testResolverCollection() throws Exception {
+        //Cached plans and casts live in ClassValues owned by the resolver, so they must not reference it
+        for (CastMode mode : CastMode.values()) {
+            WeakReference<AnnotationInheritanceResolver> resolver = castWithTemporaryResolver(mode);
+            assertCollected(mode + " resolver", () -> resolver.get() == null);
+        }
+    }
+
+    private static WeakReference<AnnotationInheritanceResolver> castWithTemporaryResolver(CastMode mode) {
+        AnnotationInheritanceResolver resolver = new AnnotationInheritanceResolver(mode);
+        assertEquals("Test3", resolver.cast(AnnotationTest.class.getAnnotation(Nested.class), Inheriting.class).value());
+        assertEquals("Test3", resolver.aspectsOf(AnnotationTest.class, Inheriting.class).get(0).value());
+        return new WeakReference<>(resolver);
+    }
+
+    /**
+     * Requests garbage collections until the condition holds, e.g. until a reference was cleared. JVMs are free to
+     * ignore {@link System#gc()}, so an unreferenced control class loader (with a class, so class unloading is covered
+     * too) tells whether collections happened at all: the test fails if the control was collected but the condition
+     * never held, and is skipped if the control was not collected either.
+     */
+    private static void assertCollected(String message, BooleanSupplier condition) throws Exception {
+        WeakReference<ClassLoader> control = unreferencedLoader();
+        for (int i = 0; i < 100; i++) {
+            if (condition.getAsBoolean())
+                return;
+            System.gc();
+            Thread.sleep(10); //Cleared references are enqueued asynchronously
+        }
+        assumeTrue("The JVM did not collect an unreferenced class loader", control.get() == null);
+        fail(message + " still reachable although an unreferenced class loader was collected");
+    }
+
+    private static WeakReference<ClassLoader> unreferencedLoader() throws ClassNotFoundException {
+        ClassLoader loader = new RedeployingClassLoader(Redeployed.class.getName());
+        loader.loadClass(Redeployed.class.getName());
+        return new WeakReference<>(loader);
+    }
+
+    private static WeakReference<ClassLoader> resolveRedeployed(AnnotationInheritanceResolver resolver) throws Exception {
+        AtomicInteger reportedVertices = new AtomicInteger();
+        resolver.setListener(new ResolverListener() {
+            @Override
+            public void merged(int newVertices, long nanos, int vertices, int edges) {
+                reportedVertices.set(vertices);
+            }
+        });
+        ClassLoader loader = new RedeployingClassLoader(Redeployed.class.getName());
+        Class<? extends Annotation> redeployed = loader.loadClass(Redeployed.class.getName()).asSubclass(Annotation.class);
+        assertNotSame(Redeployed.class, redeployed);
+        assertTrue(resolver.isInstanceOf(redeployed, Base.class));
+        assertEquals(resolver.flattenDependencies(Redeployed.class), resolver.flattenDependencies(redeployed));
+        assertTrue(resolver.dependencies(loader).containsVertex(redeployed));
+        assertFalse(resolver.dependencies().containsVertex(redeployed));
+        //Reported sizes cover every partition, not just the one merged last
+        assertEquals(resolver.dependencies().size() + resolver.dependencies(loader).size(), reportedVertices.get());
+        resolver.setListener(null);
+        return new WeakReference<>(loader);
     }
 
     @Aspect
@@ -111,6 +481,80 @@ public class AnnotationInheritanceResolverTest {
 
     }
 
+    @Inheriting(value = "Test5")
+    @BrokenBase
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.TYPE)
+    @interface Mixed {
+
+    }
+
+    @Base
+    @Cycled
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.ANNOTATION_TYPE)
+    @interface Cyclic {
+
+    }
+
+    @Cyclic
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.ANNOTATION_TYPE)
+    @interface Cycled {
+
+    }
+
+    @Base
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Redeployed {
+
+    }
+
+    /**
+     * Defines its own copy of a class, like the class loader of a redeployed web app.
+     */
+    static class RedeployingClassLoader extends ClassLoader {
+
+        private final String redeployed;
+
+        RedeployingClassLoader(String redeployed) {
+            super(RedeployingClassLoader.class.getClassLoader());
+            this.redeployed = redeployed;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(redeployed))
+                return super.loadClass(name, resolve);
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded != null)
+                    return loaded;
+                try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[4096];
+                    for (int read; (read = in.read(buffer)) != -1; )
+                        bytes.write(buffer, 0, read);
+                    return defineClass(name, bytes.toByteArray(), 0, bytes.size());
+                } catch (IOException e) {
+                    throw new ClassNotFoundException(name, e);
+                }
+            }
+        }
+    }
+
+    @BrokenBase
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Unrooted {
+
+    }
+
+    @Unrooted
+    @Deprecated
+    static class AnnotationTest5 {
+
+    }
+
     @Nested(value = "Test3")
     static class AnnotationTest {
 
@@ -120,4 +564,27 @@ public class AnnotationInheritanceResolverTest {
     static class AnnotationTest2 {
 
     }
+
+    @Nested(value = "Test4")
+    static class AnnotationTest3 {
+
+    }
+
+    @Base
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Tagged {
+        String[] tags() default {};
+        int weight() default 1;
+    }
+
+    @Tagged(tags = {"a", "b"}, weight = 3)
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface TaggedChild {
+        String value();
+    }
+
+    @TaggedChild("child")
+    static class AnnotationTest4 {
+
+    }
 }
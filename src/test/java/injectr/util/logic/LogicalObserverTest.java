@@ -2,6 +2,12 @@ package injectr.util.logic;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
 import static org.junit.Assert.*;
 
 public class LogicalObserverTest {
@@ -27,6 +33,213 @@ public class LogicalObserverTest {
         assertFalse(t.xor(new AlwaysTrueObserver()).observe(null));
     }
 
+    @Test
+    public void testFlattening() {
+        LogicalObserver<Integer> even = in -> in % 2 == 0;
+        LogicalObserver<Integer> positive = in -> in > 0;
+        LogicalObserver<Integer> small = in -> in < 10;
+
+        assertTrue(even.or(positive).observe(1)); //The second operand is observed
+        assertFalse(even.or(positive).observe(-1));
+
+        LogicalObserver<Integer> and = even.and(positive).and(small);
+        assertEquals(3, ((AndObserver<Integer>) and).observers().length);
+        assertTrue(and.observe(4));
+        assertFalse(and.observe(12));
+
+        LogicalObserver<Integer> xor = new XorObserver<>(even.xor(positive), small.xor(even));
+        assertEquals(4, ((XorObserver<Integer>) xor).observers().length);
+        assertTrue(xor.observe(-1));
+        assertFalse(xor.observe(3));
+
+        assertSame(even, even.negate().negate());
+        assertTrue(even.negate().observe(1));
+    }
+
+    @Test
+    public void testDeepComposition() {
+        LogicalObserver<Integer> observer = in -> in == 0;
+        for (int i = 1; i < 10_000; i++) {
+            int value = i;
+            observer = observer.or(in -> in == value);
+        }
+        assertEquals(10_000, ((OrObserver<Integer>) observer).observers().length);
+        assertTrue(observer.observe(9_999));
+        assertFalse(observer.observe(-1));
+
+        LogicalObserver<Integer>[] terms = new LogicalObserver[200];
+        for (int i = 0; i < terms.length; i++)
+            terms[i] = in -> in >= 0;
+        assertTrue(terms[0].and(terms).observe(1));
+        assertFalse(terms[0].and(terms).observe(-1));
+    }
+
+    @Test
+    public void testCompilation() {
+        LogicalObserver<Integer> even = in -> in % 2 == 0;
+        LogicalObserver<Integer> positive = in -> in > 0;
+        LogicalObserver<Integer> small = in -> in < 10;
+        LogicalObserver<Integer> large = in -> in > 100;
+
+        LogicalObserver<Integer> observer = even.and(positive.or(large.negate()))
+                .or(small.xor(even, positive).negate())
+                .and(new AndObserver<>(), new OrObserver<Integer>().negate(), new XorObserver<Integer>().negate());
+        LogicalObserver<Integer> compiled = observer.compile();
+        assertNotSame(observer, compiled);
+        for (int i = -200; i <= 200; i++)
+            assertEquals(observer.observe(i), compiled.observe(i));
+
+        assertSame(even, even.compile());
+
+        LogicalObserver<Integer>[] terms = new LogicalObserver[20_000]; //Too large for a single method
+        for (int i = 0; i < terms.length; i++)
+            terms[i] = in -> in < 0;
+        LogicalObserver<Integer> huge = even.or(terms);
+        assertSame(huge, huge.compile());
+
+        LogicalObserver<Integer> deep = even; //Alternating operators are never flattened
+        for (int i = 0; i < 100_000; i++)
+            deep = i % 2 == 0 ? deep.and(even) : deep.or(even);
+        assertSame(deep, deep.compile());
+    }
+
+    @Test
+    public void testCompiledClassUnloading() throws ReflectiveOperationException {
+        LogicalObserver<Integer> even = in -> in % 2 == 0;
+        LogicalObserver<Integer> compiled = even.and(in -> in > 0).compile();
+        assertTrue(compiled.observe(2));
+
+        //Unloadable classes are either hidden (Java 15+) or the only class of their own loader
+        Class<?> compiledClass = compiled.getClass();
+        boolean hidden;
+        try {
+            hidden = (Boolean) Class.class.getMethod("isHidden").invoke(compiledClass);
+        } catch (NoSuchMethodException e) {
+            hidden = false;
+        }
+        assertTrue(hidden || compiledClass.getClassLoader() != LogicalObserver.class.getClassLoader());
+    }
+
+    @Test
+    public void testBatchObservation() {
+        LogicalObserver<Integer> even = in -> in % 2 == 0;
+        LogicalObserver<Integer> positive = in -> in > 0;
+        LogicalObserver<Integer> small = in -> in < 10;
+        LogicalObserver<Integer> observer = even.and(positive.or(small.negate())).or(small.xor(even, positive));
+
+        Integer[] values = IntStream.range(-50_000, 50_000).boxed().toArray(Integer[]::new);
+        BitSet expected = new BitSet();
+        for (int i = 0; i < values.length; i++) {
+            if (observer.observe(values[i]))
+                expected.set(i);
+        }
+        assertEquals(expected, observer.observeAll(values));
+        assertEquals(expected, observer.observeAllParallel(Arrays.asList(values)));
+        assertEquals(expected, observer.compile().observeAll(values));
+
+        List<Integer> counted = Arrays.asList(values);
+        AtomicInteger observations = new AtomicInteger();
+        LogicalObserver<Integer> never = in -> {
+            observations.incrementAndGet();
+            return false;
+        };
+        assertTrue(small.negate().and(small, never).observeAll(counted).isEmpty());
+        assertEquals(0, observations.get()); //Every row was decided before reaching it
+    }
+
+    @Test
+    public void testAdaptiveReordering() {
+        AtomicInteger expensiveObservations = new AtomicInteger();
+        PureObserver<Integer> expensive = in -> {
+            expensiveObservations.incrementAndGet();
+            double sum = 0;
+            for (int i = 0; i < 2_000; i++)
+                sum += Math.sqrt(in + i);
+            return sum > 0;
+        };
+        PureObserver<Integer> selective = in -> in % 100 == 0;
+        AdaptiveObserver<Integer> observer = expensive.and(selective).adaptive();
+
+        for (int i = 1; i <= 100_000; i++)
+            assertEquals(i % 100 == 0, observer.observe(i));
+        assertSame(selective, observer.statistics().operands().get(0).observer());
+        assertTrue(observer.statistics().operands().get(0).selectivity() < 0.1);
+
+        expensiveObservations.set(0);
+        for (int i = 1; i <= 10_000; i++)
+            observer.observe(i);
+        assertEquals(100, expensiveObservations.get());
+    }
+
+    @Test
+    public void testAdaptiveGuards() {
+        //The null check is expensive and never decisive, but the length check relies on it so it must stay first
+        LogicalObserver<String> notNull = in -> {
+            double sum = 0;
+            for (int i = 0; i < 2_000; i++)
+                sum += Math.sqrt(i);
+            return sum > 0 && in != null;
+        };
+        PureObserver<String> slowEmpty = in -> {
+            double sum = 0;
+            for (int i = 0; i < 500; i++)
+                sum += Math.sqrt(i);
+            return sum > 0 && in.isEmpty();
+        };
+        PureObserver<String> empty = String::isEmpty;
+        AdaptiveObserver<String> observer = notNull.and(slowEmpty, empty).adaptive();
+
+        for (int i = 0; i < 50_000; i++)
+            observer.observe(i % 10 == 0 ? "" : "long");
+        List<ObserverStatistics> operands = observer.statistics().operands();
+        assertSame(notNull, operands.get(0).observer());
+        assertSame(empty, operands.get(1).observer()); //Pure operands after the guard are still reordered
+        assertFalse(observer.observe(null));
+    }
+
+    @Test
+    public void testCommonSubexpressions() {
+        AtomicInteger observations = new AtomicInteger();
+        PureObserver<Integer> even = in -> {
+            observations.incrementAndGet();
+            return in % 2 == 0;
+        };
+        LogicalObserver<Integer> positive = in -> in > 0;
+        LogicalObserver<Integer> observer = even.and(positive).or(even.negate().and(positive.negate()));
+        AdaptiveObserver<Integer> adaptive = observer.adaptive();
+        for (int i = -10; i <= 10; i++)
+            assertEquals(observer.observe(i), adaptive.observe(i));
+        observations.set(0);
+        for (int i = -10; i <= 10; i++)
+            adaptive.observe(i);
+        assertEquals(21, observations.get());
+    }
+
+    @Test
+    public void testPrimitiveObservers() {
+        IntLogicalObserver even = in -> in % 2 == 0;
+        IntLogicalObserver positive = in -> in > 0;
+        IntLogicalObserver intObserver = even.and(positive).and(in -> in < 10).or(in -> in == -1);
+        assertEquals(3, ((IntAndObserver) ((IntOrObserver) intObserver).observers()[0]).observers().length);
+        assertTrue(intObserver.observe(4));
+        assertTrue(intObserver.observe(-1));
+        assertFalse(intObserver.observe(12));
+        assertTrue(even.xor(positive).observe(3));
+        assertSame(even, even.negate().negate());
+        assertTrue(IntLogicalObserver.fromPredicate(even.toPredicate().negate()).observe(3));
+        assertTrue(even.boxed().observe(2));
+
+        LongLogicalObserver large = in -> in > Integer.MAX_VALUE;
+        assertTrue(large.or(in -> in < 0, in -> in == 7).observe(7L));
+        assertFalse(large.negate().and(in -> in > 0).observe(1L << 40));
+        assertTrue(LongLogicalObserver.fromPredicate(in -> in == 1).toPredicate().test(1));
+
+        DoubleLogicalObserver finite = Double::isFinite;
+        assertFalse(finite.and(in -> in > 0).observe(Double.NaN));
+        assertTrue(finite.xor(in -> in > 0, in -> in > 1).observe(2.0));
+        assertTrue(DoubleLogicalObserver.fromPredicate(in -> in < 0).negate().observe(0.5));
+    }
+
     public static class AlwaysTrueObserver<T> implements LogicalObserver<T> {
 
         @Override